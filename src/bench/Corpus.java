@@ -0,0 +1,222 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The class Corpus writes a directory of synthetic gene trees that look like the
+ * ones NestedIn is run on. Each tree is written to "query.tre" and holds:
+ *   - one query leaf, e.g. "Rhodophyta-Synthetic_alga_contig_12.1"
+ *   - donor leaves labeled as in the ABipartition test data,
+ *     e.g. "Bacteria.Firmicutes-Species_7.WP_100007.1"
+ *   - eukaryotic leaves, e.g. "Opisthokonta.Metazoa-Species_8.XP_100008.1"
+ * Topologies are random binary trees below a basal trifurcation of a bacterial clade
+ * and two eukaryotic clades. Interior nodes carry bootstrap supports (mostly high, as in
+ * real data) and every branch carries a length. A given fraction of trees is "nested":
+ * the query forms a strongly supported cherry with a bacterium inside the bacterial clade,
+ * whose basal node is strongly supported as well, so these trees are expected to qualify
+ * with '--donor Bacteria --cutoff 90'. In the other trees the query sits among
+ * eukaryotes. Tree sizes follow a log-normal, uniform or fixed distribution. The same
+ * seed always gives the same corpus, and a manifest "corpus.tsv" lists the size and
+ * placement of every tree.
+ *
+ * Usage: java -cp NestedIn.jar bench.Corpus dir=corpus [key=value ...]
+ *   trees=1000  seed=1  dist=lognormal|uniform|fixed  median=80  sigma=0.7
+ *   min=8  max=2000  nested=0.1  donors=0.4
+ */
+public class Corpus {
+	public static final String QUERY_PREFIX = "Rhodophyta-Synthetic_alga_contig_";
+	public static final String DONOR = "Bacteria";
+	public static final String MANIFEST = "corpus.tsv";
+
+	private static final String[] PHYLA = {"Proteobacteria", "Cyanobacteria", "Firmicutes",
+			"Actinobacteria", "Bacteroidetes", "Chlorobi", "Chlamydiae", "Chloroflexi"};
+	private static final String[] GROUPS = {"Opisthokonta.Metazoa", "Opisthokonta.Fungi",
+			"Plantae.Viridiplantae", "Chromalveolata.Stramenopiles", "Chromalveolata.Alveolata",
+			"Amoebozoa.Mycetozoa", "Excavata.Parabasalia"};
+
+	private int trees      = 1000;
+	private long seed      = 1;
+	private String dist    = "lognormal";
+	private double median  = 80;
+	private double sigma   = 0.7;
+	private int min        = 8;
+	private int max        = 2000;
+	private double nested  = 0.1;
+	private double donors  = 0.4;
+
+	public static void main(String[] args) {
+		Corpus corpus = new Corpus();
+		String dir = "";
+		for (String arg : args) {
+			String[] kv = arg.split("=", 2);
+			if (kv.length != 2) {
+				System.out.println("#-> expecting key=value: " + arg);
+				System.exit(1);
+			}
+			if (kv[0].equals("dir")) {
+				dir = kv[1];
+			} else if (!corpus.set(kv[0], kv[1])) {
+				System.out.println("#-> unknown key: " + kv[0]);
+				System.exit(1);
+			}
+		}
+		if (dir.isEmpty()) {
+			System.out.println("Warning: no output directory is specified (dir=...)");
+			System.exit(1);
+		}
+		try {
+			int nested = corpus.write(Paths.get(dir));
+			System.out.println(corpus.trees + " trees (" + nested + " nested) written to " + dir);
+		} catch (IOException e) {
+			System.out.println("#-> errorous writting to directory: " + dir);
+		}
+	}
+
+	/**
+	 * Set a generator parameter
+	 * @param key parameter name (trees, seed, dist, median, sigma, min, max, nested, donors)
+	 * @param value parameter value
+	 * @return false if the key is unknown
+	 */
+	public boolean set(String key, String value) {
+		switch (key) {
+			case "trees":  trees  = Integer.parseInt(value); break;
+			case "seed":   seed   = Long.parseLong(value); break;
+			case "dist":   dist   = value; break;
+			case "median": median = Double.parseDouble(value); break;
+			case "sigma":  sigma  = Double.parseDouble(value); break;
+			case "min":    min    = Math.max(8, Integer.parseInt(value)); break;
+			case "max":    max    = Integer.parseInt(value); break;
+			case "nested": nested = Double.parseDouble(value); break;
+			case "donors": donors = Double.parseDouble(value); break;
+			default: return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Write the corpus and its manifest
+	 * @param dir output directory (created if needed)
+	 * @return the number of nested trees
+	 * @throws IOException
+	 */
+	public int write(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		Random sizes = new Random(seed);
+		int nbNested = 0;
+		try (BufferedWriter manifest = Files.newBufferedWriter(dir.resolve(MANIFEST))) {
+			manifest.write("file\tleaves\tplacement\n");
+			for (int i=1; i<=trees; i++) {
+				int size = drawSize(sizes);
+				boolean isNested = sizes.nextDouble() < nested;
+				if (isNested) nbNested++;
+				String query = QUERY_PREFIX + i + ".1";
+				/* a tree only depends on the seed and its index, not on the number of trees */
+				String newick = tree(query, size, isNested, new Random(seed * 1000003L + i));
+				String file = query + ".tre";
+				Files.write(dir.resolve(file), (newick + "\n").getBytes());
+				manifest.write(file + "\t" + size + "\t" + (isNested ? "nested" : "outside") + "\n");
+			}
+		}
+		return nbNested;
+	}
+
+	/** draw a number of leaves from the size distribution */
+	private int drawSize(Random random) {
+		double size;
+		switch (dist) {
+			case "lognormal": size = median * Math.exp(sigma * random.nextGaussian()); break;
+			case "uniform":   size = min + random.nextInt(Math.max(1, max - min + 1)); break;
+			case "fixed":     size = median; break;
+			default: throw new IllegalArgumentException("unknown size distribution: " + dist);
+		}
+		return (int) Math.max(min, Math.min(max, Math.round(size)));
+	}
+
+	/**
+	 * Make a newick tree
+	 * @param query label of the query leaf
+	 * @param size number of leaves, query included (at least 8)
+	 * @param isNested whether the query is placed inside the bacterial clade
+	 * @param random source of labels, topology, supports and branch lengths
+	 * @return a newick tree string
+	 */
+	public String tree(String query, int size, boolean isNested, Random random) {
+		int nbDonors = (int) Math.round(donors * (size - 1));
+		nbDonors = Math.max(2, Math.min(size - 5, nbDonors));
+		List<String> bacteria = new ArrayList<String>();
+		List<String> eukaryotes = new ArrayList<String>();
+		for (int i=1; i<size; i++) {
+			if (i <= nbDonors) {
+				bacteria.add("Bacteria." + PHYLA[random.nextInt(PHYLA.length)] + "-Species_" + i + ".WP_" + (100000 + i) + ".1");
+			} else {
+				eukaryotes.add(GROUPS[random.nextInt(GROUPS.length)] + "-Species_" + i + ".XP_" + (100000 + i) + ".1");
+			}
+		}
+		Collections.shuffle(bacteria, random);
+		if (isNested) {
+			/* the query and a bacterium form a strongly supported cherry inside the bacterial clade */
+			String sister = bacteria.get(0);
+			bacteria.set(0, "(" + query + ":" + length(random) + "," + sister + ":" + length(random) + ")"
+					+ (90 + random.nextInt(11)));
+			Collections.shuffle(bacteria, random);
+		} else {
+			eukaryotes.add(query);
+		}
+		Collections.shuffle(eukaryotes, random);
+
+		/* basal trifurcation: (bacteria, eukaryotes part 1, eukaryotes part 2) */
+		int half = eukaryotes.size() / 2;
+		StringBuilder sb = new StringBuilder(size * 56);
+		sb.append('(');
+		clade(sb, bacteria, 0, bacteria.size(), random, isNested);
+		sb.append(':').append(length(random)).append(',');
+		clade(sb, eukaryotes, 0, half, random, false);
+		sb.append(':').append(length(random)).append(',');
+		clade(sb, eukaryotes, half, eukaryotes.size(), random, false);
+		sb.append(':').append(length(random)).append(");");
+		return sb.toString();
+	}
+
+	/* write leaves [from, to) as a random binary subtree; a strong clade gets a support of at least 90 */
+	private void clade(StringBuilder sb, List<String> leaves, int from, int to, Random random, boolean strong) {
+		if (to - from == 1) {
+			sb.append(leaves.get(from));
+			return;
+		}
+		int middle = from + 1 + random.nextInt(to - from - 1);
+		sb.append('(');
+		clade(sb, leaves, from, middle, random, false);
+		sb.append(':').append(length(random)).append(',');
+		clade(sb, leaves, middle, to, random, false);
+		sb.append(':').append(length(random)).append(')').append(strong ? 90 + random.nextInt(11) : support(random));
+	}
+
+	/* bootstrap support skewed towards high values */
+	private static int support(Random random) {
+		return (int) Math.max(0, 100 - Math.abs(random.nextGaussian()) * 25);
+	}
+
+	private static String length(Random random) {
+		return String.format(Locale.ROOT, "%.5f", -0.1 * Math.log(1 - random.nextDouble()));
+	}
+
+	/*
+	 * getters
+	 */
+	public int getTrees() {
+		return trees;
+	}
+	public long getSeed() {
+		return seed;
+	}
+}
@@ -0,0 +1,164 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import newicktree.ABipartition;
+import newicktree.AllBipartitions;
+import newicktree.NewickTree;
+import newicktree.Splits;
+
+/**
+ * The class HotPaths benchmarks the parsing and monophyly hot paths on synthetic
+ * trees of different sizes and shapes:
+ *   parse     - NewickTree construction
+ *   fision    - split enumeration (Splits.fision via NewickTree.getBipartitions)
+ *   ingroup   - ABipartition.checkIngroup on the split with the largest ingroup
+ *   visit     - AllBipartitions.visitAllBipartitions over all split strings
+ *   screen    - AllBipartitions over the leaf ranges of all splits (as in a scan, see LeafTable)
+ * Each case is warmed up, then measured for a fixed time. Time per operation and
+ * bytes allocated per operation (hence the allocation rate) are reported.
+ *
+ * Usage: java -cp NestedIn.jar bench.HotPaths [key=value ...]
+ *   bench=parse,fision,ingroup,visit,screen  shapes=caterpillar,balanced,star
+ *   sizes=50,500,5000,50000  warmup=1  measure=3  (seconds per case)
+ * Cases that fail (e.g., run out of memory) are reported and larger sizes of the
+ * same benchmark and shape are skipped.
+ */
+public class HotPaths {
+	private List<String> benches = Arrays.asList("parse", "fision", "ingroup", "visit", "screen");
+	private List<String> shapes  = Arrays.asList(Shapes.CATERPILLAR, Shapes.BALANCED, Shapes.STAR);
+	private List<Integer> sizes  = Arrays.asList(50, 500, 5000, 50000);
+	private double warmup  = 1;
+	private double measure = 3;
+
+	/* results of each operation are kept here so the JIT cannot drop the work */
+	private long sink = 0;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) {
+		HotPaths hp = new HotPaths();
+		for (String arg : args) {
+			String[] kv = arg.split("=", 2);
+			if (kv.length != 2) {
+				System.out.println("#-> expecting key=value: " + arg);
+				System.exit(1);
+			}
+			switch (kv[0]) {
+				case "bench":   hp.benches = Arrays.asList(kv[1].split(",")); break;
+				case "shapes":  hp.shapes  = Arrays.asList(kv[1].split(",")); break;
+				case "sizes":   hp.sizes   = new ArrayList<Integer>();
+				                for (String s : kv[1].split(",")) hp.sizes.add(Integer.parseInt(s));
+				                break;
+				case "warmup":  hp.warmup  = Double.parseDouble(kv[1]); break;
+				case "measure": hp.measure = Double.parseDouble(kv[1]); break;
+				default:
+					System.out.println("#-> unknown key: " + kv[0]);
+					System.exit(1);
+			}
+		}
+		hp.run();
+	}
+
+	/** run all cases and print one line per case */
+	public void run() {
+		System.out.println(String.format(Locale.ROOT, "%-8s %-12s %7s %10s %14s %14s %12s",
+				"bench", "shape", "leaves", "ops", "us/op", "bytes/op", "alloc MB/s"));
+		for (String bench : benches) {
+			for (String shape : shapes) {
+				for (int size : sizes) {
+					if (!runCase(bench, shape, size)) break;
+				}
+			}
+		}
+		if (sink == 42) System.out.println();
+	}
+
+	/**
+	 * Warm up and measure one case
+	 * @return false if the case failed
+	 */
+	private boolean runCase(String bench, String shape, int size) {
+		Runnable op;
+		try {
+			op = prepare(bench, shape, size);
+			loop(op, warmup);
+			long allocated = allocated();
+			long start = System.nanoTime();
+			long ops = loop(op, measure);
+			long nanos = System.nanoTime() - start;
+			allocated = allocated() - allocated;
+			System.out.println(String.format(Locale.ROOT, "%-8s %-12s %7d %10d %14.2f %14d %12.1f",
+					bench, shape, size, ops, nanos / 1e3 / ops, allocated / ops,
+					allocated / 1e6 / (nanos / 1e9)));
+			return true;
+		} catch (OutOfMemoryError | RuntimeException e) {
+			System.out.println(String.format(Locale.ROOT, "%-8s %-12s %7d   failed: %s", bench, shape, size, e));
+			return false;
+		}
+	}
+
+	/** repeat an operation for at least the given time (and at least once) */
+	private long loop(Runnable op, double seconds) {
+		long end = System.nanoTime() + (long) (seconds * 1e9);
+		long ops = 0;
+		do {
+			op.run();
+			ops++;
+		} while (System.nanoTime() < end);
+		return ops;
+	}
+
+	/** build the input of a case outside of the measured loop */
+	private Runnable prepare(String bench, String shape, int size) {
+		String newick = Shapes.newick(shape, size, size);
+		String query = Shapes.QUERY;
+		switch (bench) {
+			case "parse":
+				return () -> sink += new NewickTree(newick).getRoot().getChildren().size();
+			case "fision": {
+				NewickTree tree = new NewickTree(newick);
+				return () -> sink += tree.getBipartitions(query).size();
+			}
+			case "ingroup": {
+				String half = largestIngroup(new NewickTree(newick).getBipartitions(query));
+				return () -> {
+					ABipartition bp = new ABipartition(half);
+					bp.checkIngroup(query, Shapes.DONOR, "", "");
+					sink += bp.getStatus();
+				};
+			}
+			case "visit": {
+				List<String> bp = new NewickTree(newick).getBipartitions(query);
+				return () -> sink += new AllBipartitions(bp, query, Shapes.DONOR, 90, "", "", 0).getWeakNodes();
+			}
+			case "screen": {
+				Splits splits = new NewickTree(newick).getSplits();
+				return () -> sink += new AllBipartitions(splits, query, Shapes.DONOR, 90, "", "", 0, null).getWeakNodes();
+			}
+			default:
+				throw new IllegalArgumentException("unknown benchmark: " + bench);
+		}
+	}
+
+	/** return the two halves ("ingroup \t outgroup") of the split with the longest ingroup */
+	private String largestIngroup(List<String> bipartitions) {
+		String[] best = null;
+		for (String l : bipartitions) {
+			String[] data = l.split("\t");
+			if (best == null || data[2].length() > best[2].length()) best = data;
+		}
+		if (best == null) throw new IllegalStateException("tree has no split");
+		return best[2].substring(1, best[2].length()-1) +"\t"+ best[3].substring(1, best[3].length()-1);
+	}
+
+	/** bytes allocated by the current thread so far */
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,171 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The class ScanBenchmark measures the end-to-end directory scan (NestedIn.Adir and
+ * its Task workers) on a synthetic corpus for a series of thread counts. Every run is a
+ * fresh JVM, so runs do not share JIT state or heap, and the peak resident set size
+ * of the scan (VmHWM from /proc, Linux only) is reported next to trees per second.
+ * Wall time includes JVM start-up, which matters only for very small corpora.
+ *
+ * Usage: java -cp NestedIn.jar bench.ScanBenchmark [key=value ...]
+ *   dir=corpus      an existing corpus; if absent, one is generated with bench.Corpus
+ *                   parameters (trees=, seed=, dist=, median=, ...) into a temporary directory
+ *   threads=1,2,4,8  repeat=1  xmx=2g (heap of the scanning JVM)
+ */
+public class ScanBenchmark {
+	/* interval (in milliseconds) between reads of the peak resident set size */
+	private static final long POLL = 20;
+
+	private List<Integer> threads = Arrays.asList(1, 2, 4, 8);
+	private int repeat  = 1;
+	private String xmx  = "2g";
+	private String dir  = "";
+	private Corpus corpus = new Corpus();
+
+	public static void main(String[] args) {
+		ScanBenchmark sb = new ScanBenchmark();
+		for (String arg : args) {
+			String[] kv = arg.split("=", 2);
+			if (kv.length != 2) {
+				System.out.println("#-> expecting key=value: " + arg);
+				System.exit(1);
+			}
+			switch (kv[0]) {
+				case "dir":     sb.dir    = kv[1]; break;
+				case "repeat":  sb.repeat = Integer.parseInt(kv[1]); break;
+				case "xmx":     sb.xmx    = kv[1]; break;
+				case "threads": sb.threads = new ArrayList<Integer>();
+				                for (String s : kv[1].split(",")) sb.threads.add(Integer.parseInt(s));
+				                break;
+				default:
+					if (!sb.corpus.set(kv[0], kv[1])) {
+						System.out.println("#-> unknown key: " + kv[0]);
+						System.exit(1);
+					}
+			}
+		}
+		try {
+			sb.run();
+		} catch (IOException | InterruptedException e) {
+			System.out.println("#-> errorous running benchmark: " + e);
+		}
+	}
+
+	/** scan the corpus once (or repeat times) per thread count and print one line per run */
+	public void run() throws IOException, InterruptedException {
+		Path work = Files.createTempDirectory("nestedin-scan");
+		try {
+			Path corpusDir;
+			if (dir.isEmpty()) {
+				corpusDir = work.resolve("corpus");
+				long t0 = System.nanoTime();
+				int nested = corpus.write(corpusDir);
+				System.out.println(String.format(Locale.ROOT, "corpus: %d trees (%d nested, seed %d) generated in %.1f s",
+						corpus.getTrees(), nested, corpus.getSeed(), (System.nanoTime() - t0) / 1e9));
+			} else {
+				corpusDir = Paths.get(dir);
+			}
+			long nbTrees;
+			long bytes;
+			try (Stream<Path> files = Files.list(corpusDir)) {
+				List<Path> trees = files.filter(x->exe.NestedIn.isTreeFile(x)).collect(Collectors.toList());
+				nbTrees = trees.size();
+				bytes = 0;
+				for (Path p : trees) bytes += Files.size(p);
+			}
+			System.out.println(String.format(Locale.ROOT, "input: %d trees, %.1f MB", nbTrees, bytes / 1e6));
+			System.out.println(String.format(Locale.ROOT, "%7s %7s %10s %10s %8s %12s %7s",
+					"threads", "run", "seconds", "trees/s", "speedup", "peakRSS MB", "hits"));
+
+			double base = 0;
+			for (int t : threads) {
+				for (int r=1; r<=repeat; r++) {
+					long[] rss = new long[1];
+					Path log = work.resolve("run_" + t + "_" + r + ".log");
+					long t0 = System.nanoTime();
+					int exit = scan(corpusDir.toAbsolutePath(), work.resolve("run_" + t + "_" + r), t, log, rss);
+					double seconds = (System.nanoTime() - t0) / 1e9;
+					if (exit != 0) {
+						System.out.println(String.format(Locale.ROOT, "%7d %7d   failed (exit %d), see %s", t, r, exit, log));
+						continue;
+					}
+					double rate = nbTrees / seconds;
+					if (base == 0) base = rate;
+					System.out.println(String.format(Locale.ROOT, "%7d %7d %10.2f %10.1f %8.2f %12s %7s",
+							t, r, seconds, rate, rate / base,
+							rss[0] < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", rss[0] / 1024.0), hits(log)));
+				}
+			}
+		} finally {
+			delete(work);
+		}
+	}
+
+	/**
+	 * Run one scan in a child JVM
+	 * @param corpusDir input directory
+	 * @param output prefix of the output files
+	 * @param thread number of threads
+	 * @param log file receiving the console output of the scan
+	 * @param rss a holder for the peak resident set size in kB (-1 if unknown)
+	 * @return the exit code of the scan
+	 */
+	private int scan(Path corpusDir, Path output, int thread, Path log, long[] rss)
+			throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder pb = new ProcessBuilder(java, "-Xmx" + xmx, "-cp", System.getProperty("java.class.path"),
+				"exe.NestedIn", "--directory", corpusDir.toString(), "--donor", Corpus.DONOR, "--cutoff", "90",
+				"--thread", Integer.toString(thread), "--output", output.toString());
+		pb.redirectErrorStream(true);
+		pb.redirectOutput(log.toFile());
+		Process process = pb.start();
+		Path status = Paths.get("/proc", Long.toString(process.pid()), "status");
+		rss[0] = -1;
+		while (process.isAlive()) {
+			/* VmHWM only grows, so the last successful read is the peak */
+			long hwm = highWaterMark(status);
+			if (hwm > 0) rss[0] = hwm;
+			Thread.sleep(POLL);
+		}
+		return process.waitFor();
+	}
+
+	/* read VmHWM (in kB) from /proc/<pid>/status; -1 if unavailable */
+	private static long highWaterMark(Path status) {
+		try {
+			for (String line : Files.readAllLines(status)) {
+				if (line.startsWith("VmHWM:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+			}
+		} catch (IOException | RuntimeException e) {
+			// process gone or not on Linux
+		}
+		return -1;
+	}
+
+	/* number of qualifying trees reported by the scan */
+	private static String hits(Path log) throws IOException {
+		for (String line : Files.readAllLines(log)) {
+			if (line.endsWith("trees meet user criteria.")) return line.substring(0, line.indexOf(' '));
+		}
+		return "?";
+	}
+
+	private static void delete(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(p);
+		}
+	}
+}
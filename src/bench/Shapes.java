@@ -0,0 +1,93 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * The class Shapes writes synthetic newick trees of a given number of leaves and shape
+ * for benchmarking. Leaf 0 is the query; the other leaves alternate between a donor
+ * (Bacteria) and a non-donor (Eukaryota) label. Interior nodes carry support values
+ * and every branch carries a length, as in IQ-TREE/RAxML output.
+ */
+public class Shapes {
+	public static final String CATERPILLAR = "caterpillar";
+	public static final String BALANCED    = "balanced";
+	public static final String STAR        = "star";
+
+	public static final String QUERY = "Query-contig_1.1";
+	public static final String DONOR = "Bacteria";
+
+	/**
+	 * Make a newick tree
+	 * @param shape CATERPILLAR (a ladder), BALANCED (a complete binary tree) or STAR (a single polytomy)
+	 * @param size number of leaves (at least 3)
+	 * @param seed seed for random support values
+	 * @return a newick tree string
+	 */
+	public static String newick(String shape, int size, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(size * 48);
+		if (shape.equals(CATERPILLAR)) {
+			/* ((((L0,L1),L2),L3)..., L(n-2), L(n-1)); with a basal trifurcation */
+			for (int i=0; i<size-3; i++) sb.append('(');
+			sb.append(label(0)).append(":0.1");
+			for (int i=1; i<size-2; i++) {
+				sb.append(',').append(label(i)).append(":0.1");
+				sb.append(')').append(support(random)).append(":0.1");
+			}
+			sb.insert(0, '(');
+			sb.append(',').append(label(size-2)).append(":0.1");
+			sb.append(',').append(label(size-1)).append(":0.1);");
+		} else if (shape.equals(BALANCED)) {
+			/* a basal trifurcation of three balanced subtrees */
+			int third = size / 3;
+			sb.append('(');
+			balanced(sb, 0, third, random);
+			sb.append(":0.1,");
+			balanced(sb, third, 2*third, random);
+			sb.append(":0.1,");
+			balanced(sb, 2*third, size, random);
+			sb.append(":0.1);");
+		} else if (shape.equals(STAR)) {
+			sb.append('(');
+			for (int i=0; i<size; i++) {
+				if (i > 0) sb.append(',');
+				sb.append(label(i)).append(":0.1");
+			}
+			sb.append(");");
+		} else {
+			throw new IllegalArgumentException("unknown shape: " + shape);
+		}
+		return sb.toString();
+	}
+
+	/* write leaves [from, to) as a balanced subtree */
+	private static void balanced(StringBuilder sb, int from, int to, Random random) {
+		if (to - from == 1) {
+			sb.append(label(from));
+			return;
+		}
+		int middle = (from + to) / 2;
+		sb.append('(');
+		balanced(sb, from, middle, random);
+		sb.append(":0.1,");
+		balanced(sb, middle, to, random);
+		sb.append(":0.1)").append(support(random));
+	}
+
+	/** return the label of leaf i */
+	public static String label(int i) {
+		if (i == 0) return QUERY;
+		if (i % 2 == 1) return "Bacteria.Proteobacteria-Species_" + i + ".WP_" + (100000 + i) + ".1";
+		return "Eukaryota.Metazoa-Species_" + i + ".XP_" + (100000 + i) + ".1";
+	}
+
+	private static int support(Random random) {
+		return 50 + random.nextInt(51);
+	}
+
+	public static void main(String[] args) {
+		System.out.println(newick(CATERPILLAR, 6, 1));
+		System.out.println(newick(BALANCED, 6, 1));
+		System.out.println(newick(STAR, 6, 1));
+	}
+}
@@ -0,0 +1,183 @@
+package exe;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import newicktree.Labels;
+import newicktree.Taxonomy;
+
+/**
+ * The class Aggregate counts, while trees are being screened, which donor lineages
+ * and donor clades unite with the queries of each genome. It is fed the ingroup
+ * details of every qualifying tree (see Verdict.getSupportDonorsAndOptionals()), so
+ * no ".ingroup.txt" file needs to be read back after a scan.
+ *
+ * The lineage of a donor sequence is its lineage in the taxonomy table if one is loaded
+ * (see Taxonomy), otherwise the group before the first '-' of its name (e.g.
+ * "Proteobacteria-Hyphomonas_neptunium_gi114797291" -> "Proteobacteria"), otherwise the
+ * donor taxon found in its name. The clade of a supporting node is the set of lineages
+ * of its donors, joined with '+'. The genome of a query is its name before the sequence
+ * ID (see genomeOf()).
+ *
+ * Counts are kept in one concurrent table per (level, lineage or clade, genome), so
+ * memory grows with the number of distinct combinations, not with the number of hits.
+ */
+public class Aggregate {
+	public static final String LINEAGE = "lineage";
+	public static final String CLADE   = "clade";
+	/* markers in front of the sequence ID of a query name */
+	private static final String[] MARKERS = {"_contig", "_scaffold", "_chr", "_gene", "_seq"};
+	private static final String OTHER = "other";
+	/* columns of counts */
+	private static final int TREES = 0;
+	private static final int NODES = 1;
+	private static final int STRONG = 2;
+	private static final int SEQUENCES = 3;
+
+	private String[] donors;
+	private double cut;
+	private ConcurrentHashMap<String,LongAdder[]> table = new ConcurrentHashMap<String,LongAdder[]>();
+	/* lineage of each donor label, by label ID */
+	private ConcurrentHashMap<Integer,String> lineages = new ConcurrentHashMap<Integer,String>();
+
+	/**
+	 * Constructor
+	 * @param donor a string for donor species. Multiple species are separated by comma ','.
+	 * @param cut a double as cutoff for minimal branch support
+	 */
+	public Aggregate(String donor, double cut) {
+		this.donors = donor.split(",");
+		this.cut = cut;
+	}
+
+	/**
+	 * Count the supporting nodes of a qualifying tree
+	 * @param verdict the outcome of screening the tree
+	 */
+	public void add(Verdict verdict) {
+		String genome = genomeOf(verdict.getQuery());
+		/* counts of this tree, gathered first so that each key is counted once per tree */
+		HashMap<String,long[]> counts = new HashMap<String,long[]>();
+		for (String record : verdict.getSupportDonorsAndOptionals()) {
+			String[] fields = record.split("\t", -1);
+			if (fields.length < 2 || fields[1].isEmpty()) continue;
+			boolean strong = Double.parseDouble(fields[0]) >= cut;
+			HashMap<String,Integer> perLineage = new HashMap<String,Integer>();
+			for (String seq : fields[1].split(",")) perLineage.merge(lineageOf(seq), 1, Integer::sum);
+			for (Map.Entry<String,Integer> e : perLineage.entrySet()) {
+				count(counts, LINEAGE + "\t" + e.getKey() + "\t" + genome, strong, e.getValue());
+			}
+			String clade = String.join("+", new TreeSet<String>(perLineage.keySet()));
+			count(counts, CLADE + "\t" + clade + "\t" + genome, strong, fields[1].split(",").length);
+		}
+		for (Map.Entry<String,long[]> e : counts.entrySet()) {
+			LongAdder[] total = table.get(e.getKey());
+			if (total == null) total = table.computeIfAbsent(e.getKey(), k -> newCounts());
+			long[] c = e.getValue();
+			total[TREES].increment();
+			total[NODES].add(c[NODES]);
+			total[STRONG].add(c[STRONG]);
+			total[SEQUENCES].add(c[SEQUENCES]);
+		}
+	}
+
+	private static void count(HashMap<String,long[]> counts, String key, boolean strong, int sequences) {
+		long[] c = counts.computeIfAbsent(key, k -> new long[4]);
+		c[NODES]++;
+		if (strong) c[STRONG]++;
+		c[SEQUENCES] += sequences;
+	}
+
+	private static LongAdder[] newCounts() {
+		LongAdder[] c = new LongAdder[4];
+		for (int i=0; i<c.length; i++) c[i] = new LongAdder();
+		return c;
+	}
+
+	/**
+	 * Return the lineage of a donor sequence
+	 * @param label name of a donor sequence
+	 */
+	public String lineageOf(String label) {
+		Integer id = Labels.id(label);
+		String lineage = lineages.get(id);
+		if (lineage != null) return lineage;
+		lineage = findLineage(label);
+		lineages.put(id, lineage);
+		return lineage;
+	}
+
+	private String findLineage(String label) {
+		Taxonomy taxonomy = Taxonomy.get();
+		if (taxonomy != null) {
+			List<String> lineage = taxonomy.getLineage(label);
+			if (!lineage.isEmpty()) return Labels.intern(String.join(";", lineage));
+		}
+		int dash = label.indexOf('-');
+		if (dash > 0) return Labels.intern(label.substring(0, dash));
+		for (String d : donors) {
+			if (label.contains(d)) return d;
+		}
+		return OTHER;
+	}
+
+	/**
+	 * Return the genome of a query: its name before the last sequence ID marker
+	 * ("_contig", "_scaffold", "_chr", "_gene" or "_seq"), otherwise before its last '_'
+	 * (e.g. "Rhodophyta-Porphyridium_cruentum_DBLAB2_contig_618.7" ->
+	 * "Rhodophyta-Porphyridium_cruentum_DBLAB2")
+	 * @param query name of a query sequence
+	 */
+	public static String genomeOf(String query) {
+		int end = -1;
+		for (String m : MARKERS) end = Math.max(end, query.lastIndexOf(m));
+		if (end <= 0) end = query.lastIndexOf('_');
+		return end > 0 ? query.substring(0, end) : query;
+	}
+
+	/** return the number of rows in the table */
+	public int size() {
+		return table.size();
+	}
+
+	/**
+	 * Write the table, lineages first, rows ordered by number of trees
+	 * @param path a string for the output file
+	 */
+	public void write(String path) {
+		ArrayList<Map.Entry<String,LongAdder[]>> rows = new ArrayList<Map.Entry<String,LongAdder[]>>(table.entrySet());
+		rows.sort((a, b) -> {
+			int level = b.getKey().startsWith(LINEAGE) ? (a.getKey().startsWith(LINEAGE) ? 0 : 1) : (a.getKey().startsWith(LINEAGE) ? -1 : 0);
+			if (level != 0) return level;
+			int trees = Long.compare(b.getValue()[TREES].sum(), a.getValue()[TREES].sum());
+			return trees != 0 ? trees : a.getKey().compareTo(b.getKey());
+		});
+		try {
+			FileWriter writer = new FileWriter(path);
+			writer.write("Level\tDonors\tGenome\tTrees\tNodes\tNodes(support>=" + cut + ")\tSequences\n");
+			for (Map.Entry<String,LongAdder[]> row : rows) {
+				LongAdder[] c = row.getValue();
+				writer.write(row.getKey() + "\t" + c[TREES].sum() + "\t" + c[NODES].sum() + "\t"
+				             + c[STRONG].sum() + "\t" + c[SEQUENCES].sum() + "\n");
+			}
+			writer.close();
+		} catch (IOException e) {
+			System.out.println("#-> errorous writting to file: " + path);
+		}
+	}
+
+	/** return a line for the run summary */
+	public String summary(String path) {
+		HashSet<String> genomes = new HashSet<String>();
+		for (String key : table.keySet()) genomes.add(key.substring(key.lastIndexOf('\t') + 1));
+		return "donor aggregation: " + size() + " rows over " + genomes.size() + " genomes; see " + path;
+	}
+}
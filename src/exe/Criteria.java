@@ -0,0 +1,114 @@
+package exe;
+
+import newicktree.TreePattern;
+
+/**
+ * The class Criteria holds the user criteria a tree is screened against: donor,
+ * optional and ignored taxa, the support cutoff, the minimal numbers of supporting
+ * nodes and of outgroup sequences, the contamination-tolerant mode and the pattern.
+ * A single object is handed to Screen and Task, so adding a criterion does not
+ * change their constructors. Defaults are those of the command line.
+ */
+public class Criteria {
+	private String donor;
+	private double cut;
+	private String optionals = "";
+	private String ignored = "";
+	private int minStrongNode = 1;
+	private int minAllNode = 2;
+	private int minOutGroupSize = 0;
+	private boolean generalized = false;
+	private TreePattern pattern = null;
+
+	/**
+	 * Constructor
+	 * @param donor a string for donor species. Multiple species are separated by comma ','.
+	 * @param cut a double as cutoff for minimal branch support
+	 */
+	public Criteria(String donor, double cut) {
+		this.donor = donor;
+		this.cut = cut;
+	}
+
+	/** return a copy that can be changed without affecting this object */
+	public Criteria copy() {
+		Criteria c = new Criteria(donor, cut);
+		c.optionals = optionals;
+		c.ignored = ignored;
+		c.minStrongNode = minStrongNode;
+		c.minAllNode = minAllNode;
+		c.minOutGroupSize = minOutGroupSize;
+		c.generalized = generalized;
+		c.pattern = pattern;
+		return c;
+	}
+
+	/*
+	 * setters
+	 */
+	public void setDonor(String donor) {
+		this.donor = donor;
+	}
+	public void setCut(double cut) {
+		this.cut = cut;
+	}
+	// optional species allowed in the monophyletic in-group, separated by comma ','
+	public void setOptionals(String optionals) {
+		this.optionals = optionals;
+	}
+	// species to be ignored, separated by comma ','
+	public void setIgnored(String ignored) {
+		this.ignored = ignored;
+	}
+	// minimal number of nodes supporting desired monophyly strongly
+	public void setMinStrongNode(int minStrongNode) {
+		this.minStrongNode = minStrongNode;
+	}
+	// minimal number of all nodes supporting desired monophyly regardless of support levels
+	public void setMinAllNode(int minAllNode) {
+		this.minAllNode = minAllNode;
+	}
+	// minimal number of sequences required in outgroup
+	public void setMinOutGroupSize(int minOutGroupSize) {
+		this.minOutGroupSize = minOutGroupSize;
+	}
+	// whether or not to tolerate minor contaminations of strong nodes (see TestMonophyly.testGeneralized)
+	public void setGeneralized(boolean generalized) {
+		this.generalized = generalized;
+	}
+	// a pattern qualifying trees must also match (null for none)
+	public void setPattern(TreePattern pattern) {
+		this.pattern = pattern;
+	}
+
+	/*
+	 * getters
+	 */
+	public String getDonor() {
+		return donor;
+	}
+	public double getCut() {
+		return cut;
+	}
+	public String getOptionals() {
+		return optionals;
+	}
+	public String getIgnored() {
+		return ignored;
+	}
+	public int getMinStrongNode() {
+		return minStrongNode;
+	}
+	public int getMinAllNode() {
+		return minAllNode;
+	}
+	public int getMinOutGroupSize() {
+		return minOutGroupSize;
+	}
+	public boolean isGeneralized() {
+		return generalized;
+	}
+	public TreePattern getPattern() {
+		return pattern;
+	}
+}
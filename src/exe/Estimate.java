@@ -0,0 +1,222 @@
+package exe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import newicktree.NewickTree;
+
+/**
+ * The class Estimate previews a scan from a random sample of its trees. Trees are sorted
+ * by file size and cut into strata of equal numbers of trees; the sample is spread over
+ * the strata in proportion to their sizes (at least 2 trees each), so that big trees,
+ * which take most of the time, are neither missed nor over-represented. Sampled trees are
+ * screened as in a scan, without writing anything, and the number of hits and the
+ * run time of the whole directory are projected from them with 95% confidence intervals.
+ * Hits are rare and strata hold few sampled trees, so the hit interval uses the Wilson
+ * score interval of each stratum, combined over strata, instead of the normal
+ * approximation, which has zero width for a stratum without a sampled hit. The run time
+ * interval is the normal approximation of the stratified estimator. The sample is drawn
+ * with a fixed seed, so the same directory gives the same sample.
+ */
+public class Estimate {
+	/* maximal number of size strata */
+	public static final int STRATA = 10;
+	/* number of example hits reported */
+	public static final int EXAMPLES = 5;
+	private static final long SEED = 20160729L;
+	private static final double Z95 = 1.96;
+
+	private Screen screen;
+	private int thread;
+	private Watchdog watchdog;
+	/* outcome of each sampled tree: stratum, hit or not and screening time */
+	private int[] stratumOf;
+	private boolean[] hit;
+	private long[] nanos;
+	private Path[] sample;
+
+	/**
+	 * Constructor
+	 * @param screen a Screen object holding the user criteria
+	 * @param thread number of threads of the projected scan, also used to screen the sample
+	 * @param watchdog a Watchdog object enforcing per-tree budgets
+	 */
+	public Estimate(Screen screen, int thread, Watchdog watchdog) {
+		this.screen = screen;
+		this.thread = thread;
+		this.watchdog = watchdog;
+	}
+
+	/**
+	 * Screen a sample of trees and project the outcome of the whole scan
+	 * @param files tree files of the scan
+	 * @param sampleSize number of trees to sample
+	 * @return lines of the report
+	 */
+	public List<String> run(List<Path> files, int sampleSize) {
+		long start = System.currentTimeMillis();
+		int n = files.size();
+		ArrayList<String> report = new ArrayList<String>();
+		if (n == 0) {
+			report.add("estimate: no trees to sample");
+			return report;
+		}
+
+		/* sort trees by size and cut them into strata of equal numbers of trees */
+		long[] sizes = new long[n];
+		for (int i=0; i<n; i++) {
+			try {
+				sizes[i] = Files.size(files.get(i));
+			} catch (IOException e) {
+				sizes[i] = 0;
+			}
+		}
+		Integer[] order = new Integer[n];
+		for (int i=0; i<n; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(sizes[a], sizes[b]));
+		int strata = Math.max(1, Math.min(STRATA, Math.min(n, sampleSize / 2)));
+		int[] from = new int[strata + 1];
+		for (int h=0; h<=strata; h++) from[h] = (int) ((long) n * h / strata);
+
+		/* draw the sample of each stratum without replacement */
+		Random random = new Random(SEED);
+		ArrayList<Integer> drawn = new ArrayList<Integer>();
+		ArrayList<Integer> drawnStratum = new ArrayList<Integer>();
+		int[] nbSampled = new int[strata];
+		for (int h=0; h<strata; h++) {
+			int size = from[h+1] - from[h];
+			int k = (int) Math.min(size, Math.max(2, Math.round((double) sampleSize * size / n)));
+			Integer[] stratum = Arrays.copyOfRange(order, from[h], from[h+1]);
+			for (int i=0; i<k; i++) {
+				int j = i + random.nextInt(size - i);
+				Integer swap = stratum[i];
+				stratum[i] = stratum[j];
+				stratum[j] = swap;
+				drawn.add(stratum[i]);
+				drawnStratum.add(h);
+			}
+			nbSampled[h] = k;
+		}
+
+		/* screen the sample with the requested number of threads */
+		int m = drawn.size();
+		sample = new Path[m];
+		stratumOf = new int[m];
+		hit = new boolean[m];
+		nanos = new long[m];
+		ExecutorService pool = Executors.newFixedThreadPool(thread);
+		for (int i=0; i<m; i++) {
+			final int s = i;
+			sample[s] = files.get(drawn.get(s));
+			stratumOf[s] = drawnStratum.get(s);
+			pool.execute(() -> screen(s));
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			System.out.println("#-> interrupted while screening the sample");
+		}
+
+		/* stratified estimates of the number of hits and of the total screening time */
+		double hits = 0;
+		double hitsCentre = 0;
+		double hitsVariance = 0;
+		int sampledHits = 0;
+		double time = 0;
+		double timeVariance = 0;
+		for (int h=0; h<strata; h++) {
+			int size = from[h+1] - from[h];
+			int k = nbSampled[h];
+			double sumHits = 0;
+			double sumTime = 0;
+			double sumTime2 = 0;
+			for (int s=0; s<m; s++) {
+				if (stratumOf[s] != h) continue;
+				if (hit[s]) sumHits++;
+				double t = nanos[s] / 1e9;
+				sumTime += t;
+				sumTime2 += t * t;
+			}
+			double p = sumHits / k;
+			double meanTime = sumTime / k;
+			double correction = (double) size * size * (1 - (double) k / size);
+			hits += size * p;
+			time += size * meanTime;
+			sampledHits += (int) sumHits;
+			/* Wilson score interval: centre and squared half-width (over Z95) of the stratum,
+			   both shrunk by the finite population correction, so a full census is exact */
+			double z2 = Z95 * Z95;
+			double shift = (sumHits + z2 / 2) / (k + z2) - p;
+			hitsCentre += size * (p + Math.sqrt(1 - (double) k / size) * shift);
+			hitsVariance += correction * (k * p * (1 - p) + z2 / 4) / ((k + z2) * (k + z2));
+			if (k > 1) {
+				timeVariance += correction * (sumTime2 - k * meanTime * meanTime) / (k - 1) / k;
+			}
+		}
+		double hitsMargin = Z95 * Math.sqrt(hitsVariance);
+		double timeMargin = Z95 * Math.sqrt(Math.max(0, timeVariance));
+
+		report.add(String.format(Locale.ROOT, "estimate: %d of %d trees sampled in %d size strata (%.1f seconds)",
+				m, n, strata, (System.currentTimeMillis() - start) / 1000.0));
+		report.add(String.format(Locale.ROOT, "projected hits: %.0f (95%% CI %.0f-%.0f)",
+				hits, Math.max(sampledHits, Math.min(hits, hitsCentre - hitsMargin)), Math.min(n, Math.max(hits, hitsCentre + hitsMargin))));
+		report.add(String.format(Locale.ROOT, "projected run time with %d thread(s): %s (95%% CI %s-%s)", thread,
+				duration(time / thread), duration(Math.max(0, time - timeMargin) / thread), duration((time + timeMargin) / thread)));
+		ArrayList<String> examples = new ArrayList<String>();
+		for (int s=0; s<m; s++) if (hit[s]) examples.add(sample[s].getFileName().toString());
+		Collections.sort(examples);
+		if (examples.isEmpty()) {
+			report.add("example hits: none in the sample");
+		} else {
+			report.add("example hits: " + String.join(", ", examples.subList(0, Math.min(EXAMPLES, examples.size()))));
+		}
+		return report;
+	}
+
+	/* screen one sampled tree, as a scan would, and time it */
+	private void screen(int s) {
+		long t0 = System.nanoTime();
+		try {
+			String query = Task.getQuery(sample[s].toString());
+			if (query == null || query.isEmpty()) return;
+			String line;
+			try (BufferedReader reader = Files.newBufferedReader(sample[s])) {
+				line = reader.readLine();
+			} catch (IOException e) {
+				System.out.println("#-> erronreous reading file: " + sample[s]);
+				return;
+			}
+			if (line == null) return;
+			int leaves = NewickTree.countLeaves(line);
+			if (!watchdog.admits(leaves)) return;
+			Watchdog.Ticket ticket = watchdog.begin();
+			try {
+				hit[s] = screen.evaluate(query, line).isHit();
+			} catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+				/* trees over budget or malformed count as failed */
+			} finally {
+				watchdog.end(ticket);
+			}
+		} finally {
+			nanos[s] = System.nanoTime() - t0;
+		}
+	}
+
+	/* a number of seconds as h:mm:ss */
+	private static String duration(double seconds) {
+		long s = Math.round(seconds);
+		return String.format("%d:%02d:%02d", s / 3600, (s / 60) % 60, s % 60);
+	}
+}
@@ -0,0 +1,153 @@
+package exe;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import metrics.FlushEvent;
+
+/**
+ * The class Journal keeps an append-only record of finished trees so that an
+ * interrupted scan can be resumed. Each line holds a tree file name followed by
+ * either the coded node information of a qualifying tree
+ * ("file \t query \t strong nodes \t weak nodes \t all nodes"), "-" for a tree
+ * that did not qualify, or "!" for a tree that failed or was skipped (see Watchdog).
+ * Failed and skipped trees are not taken as finished, so a resumed scan screens them
+ * again. Workers collect lines locally and hand them over in batches; each batch is
+ * written and forced to disk in one go.
+ */
+public class Journal {
+	/* number of lines a worker collects before handing them to the journal */
+	public static final int BATCH = 512;
+	/* longest time (in milliseconds) a worker keeps unwritten lines */
+	public static final long LATENCY = 2000;
+
+	private static final String MISS   = "-";
+	private static final String FAILED = "!";
+
+	private String path;
+	private FileOutputStream stream;
+	private FileChannel channel;
+	/* recovered records: file name -> coded node information (or MISS) */
+	private LinkedHashMap<String,String> recovered = new LinkedHashMap<String,String>();
+
+	/**
+	 * Constructor
+	 * @param path a string for the journal file
+	 * @param resume whether or not to recover records from an existing journal.
+	 *        If false, an existing journal is truncated.
+	 * @throws IOException
+	 */
+	public Journal(String path, boolean resume) throws IOException {
+		this.path = path;
+		Path fp = Paths.get(path);
+		if (resume && Files.exists(fp)) {
+			long valid = recover(fp);
+			stream  = new FileOutputStream(path, true);
+			channel = stream.getChannel();
+			/* drop a half-written last line left behind by a crash */
+			if (channel.size() > valid) channel.truncate(valid);
+		} else {
+			stream  = new FileOutputStream(path, false);
+			channel = stream.getChannel();
+		}
+	}
+
+	/**
+	 * Read an existing journal and keep the complete, well-formed lines. A tree that
+	 * failed or was skipped is dropped, unless a later line finished it.
+	 * @param fp path to the journal
+	 * @return the number of bytes up to and including the last complete line
+	 * @throws IOException
+	 */
+	private long recover(Path fp) throws IOException {
+		byte[] bytes = Files.readAllBytes(fp);
+		int end = bytes.length;
+		while (end > 0 && bytes[end-1] != '\n') end--;
+		String text = new String(bytes, 0, end, StandardCharsets.UTF_8);
+		for (String line : text.split("\n")) {
+			String[] fields = line.split("\t", -1);
+			if (fields.length == 2 && fields[1].equals(MISS)) {
+				recovered.put(fields[0], MISS);
+			} else if (fields.length == 2 && fields[1].equals(FAILED)) {
+				recovered.remove(fields[0]);
+			} else if (fields.length == 5) {
+				recovered.put(fields[0], line.substring(fields[0].length()+1));
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Make a journal line for a finished tree
+	 * @param file path to the tree file
+	 * @param code coded node information; empty if the tree did not qualify
+	 * @param failed whether the tree failed or was skipped
+	 * @return a journal line (without line break)
+	 */
+	public static String entry(Path file, String code, boolean failed) {
+		String result = failed ? FAILED : code.isEmpty() ? MISS : code;
+		return file.getFileName().toString() + "\t" + result;
+	}
+
+	/** return true if the tree file was finished in an earlier run */
+	public boolean isDone(Path file) {
+		return recovered.containsKey(file.getFileName().toString());
+	}
+
+	/** return the number of trees finished in earlier runs */
+	public int getNbDone() {
+		return recovered.size();
+	}
+
+	/** return coded node information of qualifying trees finished in earlier runs */
+	public List<String> getResults() {
+		List<String> results = new ArrayList<String>();
+		for (String code : recovered.values()) {
+			if (!code.equals(MISS)) results.add(code);
+		}
+		return results;
+	}
+
+	/**
+	 * Write a batch of journal lines and force them to disk
+	 * @param lines journal lines made by entry()
+	 */
+	public synchronized void append(List<String> lines) {
+		if (lines.isEmpty()) return;
+		FlushEvent event = new FlushEvent();
+		event.begin();
+		StringBuilder sb = new StringBuilder(lines.size() * 96);
+		for (String l : lines) sb.append(l).append('\n');
+		ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+		try {
+			while (buffer.hasRemaining()) channel.write(buffer);
+			channel.force(false);
+		} catch (IOException e) {
+			System.out.println("#-> errorous writing to journal: " + path);
+		}
+		if (event.shouldCommit()) {
+			event.target = path;
+			event.records = lines.size();
+			event.bytes = buffer.capacity();
+			event.commit();
+		}
+	}
+
+	/** close the journal file */
+	public synchronized void close() {
+		try {
+			stream.close();
+		} catch (IOException e) {
+			System.out.println("#-> errorous closing journal: " + path);
+		}
+	}
+}
@@ -26,12 +26,16 @@ package exe;
  */
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.cli.CommandLine;
@@ -40,6 +44,12 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import metrics.Flight;
+import metrics.FlushEvent;
+import metrics.Metrics;
+import newicktree.Categories;
+import newicktree.Taxonomy;
+import newicktree.TreePattern;
 import progress.Bar;
 
 
@@ -52,6 +62,38 @@ public class NestedIn {
 	private String ignored   ="";
 	private String outHGT    ="";
 	private String outDir    ="";
+	private String journalFile ="";
+	private boolean resume   = false;
+	private boolean watch    = false;
+	private boolean stdin    = false;
+	private String format    = Streamer.TSV;
+	private String metrics   = "";
+	private String profile   = "";
+	private double timeout   = 0;
+	private int    maxLeaves = 0;
+	private String skippedFile ="";
+	private String treeForm  = TreeForm.ORIGINAL;
+	private String taxonomy  = "";
+	private boolean generalized = false;
+	private boolean aggregate = false;
+	private String aggregateFile ="";
+	private Aggregate aggregator = null;
+	private String replicates ="";
+	private String replicatesFile ="";
+	private Replicates replicator = null;
+	private String indexPrefix ="";
+	private TreeIndex index = null;
+	private String patternText ="";
+	private TreePattern pattern = null;
+	private boolean estimate    = false;
+	private int    estimateSize = 0;
+	private boolean top         = false;
+	private int    topSize      = 0;
+	private Watchdog watchdog = null;
+	private Journal journal  = null;
+	private boolean failed   = false;
+	private boolean finished = false;
+	private List<Path> treeFiles = new ArrayList<Path>();
 	private boolean getInGroup = false;
 	private int    minStrongNode  = 1;
 	private int    minAllNode     = 2;
@@ -67,9 +109,30 @@ public class NestedIn {
 		
 		/** parse input arguments */ 
 		myParser.parseArgumentInputs(args);
+		if (!myParser.metrics.isEmpty()) Metrics.enable();
+		if (!myParser.profile.isEmpty()) Flight.start(myParser.profile);
+		
+		/** in streaming mode, read trees from stdin and write results to stdout; no files are involved */
+		if (myParser.stdin) {
+			myParser.watchdog = new Watchdog(myParser.timeout, myParser.maxLeaves, "", false);
+			myParser.streamStdin();
+			return;
+		}
+		
+		/** in estimate mode, screen a sample of trees and project the outcome; no files are written */
+		if (myParser.estimate) {
+			myParser.watchdog = new Watchdog(myParser.timeout, myParser.maxLeaves, "", false);
+			myParser.estimateDir();
+			return;
+		}
 		
 		/** prepare output file name and setup output directory */
 		myParser.setOutputFileAandDirectory();
+		myParser.watchdog = new Watchdog(myParser.timeout, myParser.maxLeaves, myParser.skippedFile, myParser.resume);
+		if (myParser.aggregate) myParser.aggregator = new Aggregate(myParser.donor, myParser.cut);
+		if (!myParser.replicates.isEmpty()) {
+			myParser.replicator = new Replicates(myParser.replicates, myParser.donor, myParser.optionals, myParser.ignored);
+		}
 		
 		/** print out mandatory parameters onto console */
 		System.out.println("direcotry: " + myParser.indir);
@@ -79,6 +142,9 @@ public class NestedIn {
 		/** print out optional parameters onto console */
 		if (myParser.optionals.length()>0) System.out.println("optional taxa: " + myParser.optionals);
 		if (myParser.ignored.length()>0)   System.out.println("ignored taxa:  " + myParser.ignored);
+		if (myParser.generalized)          System.out.println("minor contaminations of strong nodes tolerated");
+		if (myParser.pattern != null)      System.out.println("pattern: " + myParser.pattern);
+		if (Taxonomy.get() != null)        System.out.println("taxonomy: " + Taxonomy.get().getNbKeys() + " keys, " + Taxonomy.get().getNbTaxa() + " taxa");
 		if (myParser.minStrongNode>1)      System.out.println("strong node number cutoff: " + Integer.toString(myParser.minStrongNode));
 		if (myParser.minStrongNode>2) {
 			if (myParser.minStrongNode>1) {
@@ -98,6 +164,8 @@ public class NestedIn {
 		ArrayList<String> nbNodesCoded = new ArrayList<String>();
 		nbNodesCoded = myParser.Adir();
 		
+		FlushEvent flush = new FlushEvent();
+		flush.begin();
 		try {
 			FileWriter hgtWriter = new FileWriter(myParser.outHGT);
 			hgtWriter.write("Gene\tNum.Node(support>="+Double.toString(myParser.cut)+")"+"\tNum.Node(support<"+Double.toString(myParser.cut)+")\tTotal\n");
@@ -108,19 +176,169 @@ public class NestedIn {
 		} catch (IOException e) {
 			System.out.println("#-> errorous writting to file: " + myParser.outHGT);
 		}
+		if (flush.shouldCommit()) {
+			flush.target = myParser.outHGT;
+			flush.records = nbNodesCoded.size();
+			flush.bytes = new File(myParser.outHGT).length();
+			flush.commit();
+		}
 		
 		/** print out job run time */
 		long endTime = System.currentTimeMillis();
 		System.out.println("take " + (endTime - startTime)/1000 + " seconds.");
 		System.out.println( String.valueOf( nbNodesCoded.size() ) + " trees meet user criteria.");
+		if (Categories.getLookups() > 0) System.out.println(Categories.summary());
+		if (myParser.aggregator != null) {
+			myParser.aggregator.write(myParser.aggregateFile);
+			System.out.println(myParser.aggregator.summary(myParser.aggregateFile));
+		}
+		if (myParser.replicator != null) {
+			myParser.replicator.write(myParser.replicatesFile);
+			System.out.println(myParser.replicator.summary(myParser.replicatesFile));
+		}
+		if (myParser.watchdog.getNbSkipped() > 0) {
+			System.out.println(myParser.watchdog.getNbSkipped() + " trees skipped; see " + myParser.skippedFile);
+		}
+		
+		/** if requested, keep screening trees that land in the input directory */
+		if (myParser.watch) {
+			myParser.watchDir(nbNodesCoded);
+		} else if (myParser.journal != null) {
+			myParser.journal.close();
+		}
+		myParser.finish();
+		if (myParser.failed) System.exit(1);
+	}
+	
+	/**
+	 * if requested, write per-stage timings and the flight recording.
+	 * Runs once: on Ctrl-C in watch mode both main and the shutdown hook get here, and
+	 * the hook waits for main to be done writing.
+	 */
+	private synchronized void finish() {
+		if (finished) return;
+		finished = true;
+		if (watchdog != null) watchdog.close();
+		if (watch && aggregator != null) aggregator.write(aggregateFile);
+		if (watch && replicator != null) replicator.write(replicatesFile);
+		if (index != null) {
+			try {
+				index.save();
+			} catch (IOException e) {
+				System.out.println("#-> errorous writing tree index: " + indexPrefix);
+			}
+		}
+		if (!metrics.isEmpty()) Metrics.get().write(metrics, version, thread);
+		Flight.stop();
+	}
+	
+	/**
+	 * Screen "query \t newick" records from stdin and write qualifying trees to stdout.
+	 * Console messages are diverted to stderr to keep stdout clean for downstream tools.
+	 */
+	private void streamStdin() {
+		PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false);
+		System.setOut(System.err);
+		Screen screen = new Screen(criteria());
+		Streamer streamer = new Streamer(screen, thread, format, getInGroup, out, watchdog);
+		try {
+			streamer.stream(System.in);
+		} catch (IOException e) {
+			System.err.println("#-> errorous reading from stdin");
+		}
+		System.err.println(streamer.getNbHits() + " of " + streamer.getNbRecords() + " trees meet user criteria.");
+		finish();
+	}
+	
+	/**
+	 * Watch the input directory and screen new or modified trees as they are completed,
+	 * appending qualifying trees to the candidates file
+	 * @param hits coded node information of trees that qualified in the initial scan
+	 */
+	private void watchDir(List<String> hits) {
+		Task screener = new Task(new Scheduler(new ArrayList<Path>()), criteria(), new ArrayList<String>(), outDir, getInGroup,
+				new Bar(0), null, watchdog, treeForm, aggregator, replicator, index, null);
+		Watcher watcher = new Watcher(Paths.get(indir), screener, outHGT, journal, thread, treeFiles, hits);
+		/* watching ends with Ctrl-C, so outputs are closed by a shutdown hook */
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			watcher.stop();
+			finish();
+		}));
+		try {
+			watcher.watch();
+		} catch (IOException e) {
+			System.out.println("#-> errorous watching directory: " + indir);
+		}
+		watcher.stop();
+	}
+	
+	/** return the user criteria trees are screened against */
+	private Criteria criteria() {
+		Criteria criteria = new Criteria(donor, cut);
+		criteria.setOptionals(optionals);
+		criteria.setIgnored(ignored);
+		criteria.setMinStrongNode(minStrongNode);
+		criteria.setMinAllNode(minAllNode);
+		criteria.setMinOutGroupSize(minOutGroupSize);
+		criteria.setGeneralized(generalized);
+		criteria.setPattern(pattern);
+		return criteria;
+	}
+	
+	/**
+	 * Test if a path names a tree file (ending with 'tre' or 'tree', e.g., '.tre' and '.contree')
+	 * @param file path to be tested
+	 * @return boolean
+	 */
+	public static boolean isTreeFile(Path file) {
+		return file.toString().matches("(.+)tree|(.+)tre");
 	}
 
+	/**
+	 * List the tree files of a directory
+	 * @param dp path to the directory
+	 * @return a list of tree files
+	 */
+	private List<Path> listTreeFiles(Path dp) {
+		List<Path> files = new ArrayList<Path>();
+		try{
+			files = Files.walk(dp,1)
+					.skip(1)
+					.filter(x->isTreeFile(x))
+					.filter(x->Files.isRegularFile(x))
+					.collect(Collectors.toList());
+		}
+		catch (IOException e) {
+			System.out.println("#1-> erronreous reading directory: " + indir);
+		}
+		return files;
+	}
+	
+	/**
+	 * Screen a sample of the input directory and project the outcome of a full scan;
+	 * no output is written
+	 */
+	private void estimateDir() {
+		Screen screen = new Screen(criteria());
+		Estimate estimate = new Estimate(screen, thread, watchdog);
+		List<Path> files = listTreeFiles(Paths.get(indir));
+		/* sample only the trees a scan would open; the index is left as it is */
+		if (index != null) {
+			files = index.select(files, Categories.of(donor, optionals, ignored));
+			index = null;
+		}
+		for (String line : estimate.run(files, estimateSize)) {
+			System.out.println(line);
+		}
+		finish();
+	}
+	
 	/** 
 	 * Take the mandatory argument indir as an input and test monophyly for each tree inside of it	
 	 * @return a list of qualifying tree and the supporting node information
 	 */
 	public ArrayList<String> Adir () {
-		ArrayList<String> results = new ArrayList<String>();
+		List<String> results = Collections.synchronizedList(new ArrayList<String>());
 		
 		/** setup directory path, create an empty list to hold output and initiate progress bar*/
 		Path dp = Paths.get(indir);
@@ -129,41 +347,78 @@ public class NestedIn {
 		int size = 100;
 		
 		/** read input directory, record tree list and set sample size for progress bar*/
-		try{
-			files = Files.walk(dp,1)
-					.skip(1)
-					.filter(x->x.toString().matches("(.+)tree|(.+)tre"))
-					.filter(x->Files.isRegularFile(x))
-					.collect(Collectors.toList());
-			size = files.size();
-			progress = new Bar (size);
+		files = listTreeFiles(dp);
+		
+		treeFiles = new ArrayList<Path>(files);
+		
+		/** open the journal; when resuming, skip trees finished in earlier runs and recover their results */
+		try {
+			journal = new Journal(journalFile, resume);
+			if (resume) {
+				System.out.println("resume: " + journal.getNbDone() + " trees done in earlier runs");
+				results.addAll(journal.getResults());
+				files.removeIf(x->journal.isDone(x));
+			}
 		}
 		catch (IOException e) {
-			System.out.println("#1-> erronreous reading directory: " + indir);
+			System.out.println("#-> errorous opening journal: " + journalFile);
 		}
+		
+		/** if indexed, open only new or modified trees and trees holding the query and a donor */
+		if (index != null) {
+			int nbListed = files.size();
+			files = index.select(files, Categories.of(donor, optionals, ignored));
+			System.out.println("index: " + index.getNbTrees() + " trees indexed; " + files.size() + " of " + nbListed + " trees to open");
+		}
+		size = files.size();
+		progress = new Bar (size);
 	
-		/** create thread-safe class to count finished tree*/
-		CountSyn count = new CountSyn();
+		/** hand out trees largest first */
+		Scheduler scheduler = new Scheduler(files);
 		
-		/** create and launch tasks in parallel*/
+		/** create and launch tasks in parallel; the progress bar is drawn by its own thread*/
+		progress.start();
 		ArrayList<Task> tasks = new ArrayList<Task>(); 
+		ArrayList<TopHits> tops = new ArrayList<TopHits>();
 		for (int i=1; i<=thread; i++) {
-			Task task = new Task(files, count, donor, cut, optionals, ignored, 
-					        minStrongNode, minAllNode, results, outDir, getInGroup, minOutGroupSize, progress);
+			TopHits best = null;
+			if (top) {
+				best = new TopHits(topSize);
+				tops.add(best);
+			}
+			Task task = new Task(scheduler, criteria(), results, outDir, getInGroup, progress, journal,
+					        watchdog, treeForm, aggregator, replicator, index, best);
+			task.setName("worker-" + i);
 			tasks.add(task);
 			task.start();
 		}
 		
-		/** wait for the join of all task threads*/
+		/** wait for the join of all task threads; a worker that died fails the run*/
 		for (Task task: tasks) {
 			try {
 				task.join();
 			}catch(Exception e){
 				System.out.println("task join error " + e);	
 			}
+			if (task.getFailure() != null) {
+				System.out.println("#-> " + task.getName() + " died: " + task.getFailure());
+				failed = true;
+			}
+		}
+		progress.stop();
+		
+		/** in top-k mode, merge the best trees of all workers, write them and rank their results */
+		if (top) {
+			int nbQualified = 0;
+			for (TopHits best : tops) nbQualified += best.getNbOffered();
+			for (TopHits.Hit hit : TopHits.merge(tops)) {
+				hit.write(outDir);
+				results.add(hit.getCode());
+			}
+			System.out.println("top: " + results.size() + " of " + nbQualified + " qualifying trees kept");
 		}
 		
-		return results;
+		return new ArrayList<String>(results);
 	}
 
 	/**
@@ -187,13 +442,30 @@ public class NestedIn {
 
 		coptions.addOption("opt", "optional"   , true,  "Optional taxa allowed in monophyletic ingroup");
 		coptions.addOption("ign", "ignore"     , true,  "taxa to be Ignored while screening trees");
+		coptions.addOption("tax", "taxonomy"   , true,  "TAXonomy table (accession or species TAB lineage) to match taxa at any rank");
 		coptions.addOption("igp", "ingroup"    , false, "export details of monophyletic Ingroups");
+		coptions.addOption("agg", "aggregate"  , false, "AGGregate donor lineages and clades per query genome into <output>.donors.txt");
+		coptions.addOption("idx", "index"      , true,  "keep an InDeX of tree leaves at <arg>.labels.txt and <arg>.postings.bin to open only candidate trees");
+		coptions.addOption("rep", "replicates" , true,  "extension of REPlicate tree files (e.g. ufboot) to compute frequencies of supporting nodes");
+		coptions.addOption("tfm", "treeform"   , true,  "ForM of qualifying Trees written out: original, querytop, outgroup, leaf:NAME or midpoint:A,B (default=original)");
 		
 		coptions.addOption("ssn", "ssnode"     , true,  "minimal Strongly Supported Nodes uniting query and donors (default=1)");
 		coptions.addOption("asn", "asnode"     , true,  "minimal number of All Supporting Nodes uniting query and donors (default=2)");
 		coptions.addOption("ogs", "outgroupsize", true,  "minimal OutGroup Size for a tree to be considered valid (default=5)");
+		coptions.addOption("pat", "pattern"    , true,  "PATtern qualifying trees must also match, e.g. 'some(nested and strong and taxa(A,B) >= 2)'");
+		coptions.addOption("gen", "generalized", false, "tolerate 1-2 contaminating sequences in strong nodes if they group with donors elsewhere (GENeralized)");
 		
 		coptions.addOption("thd", "thread"     , true,  "number of threads to use (default=1)");
+		coptions.addOption("tmo", "timeout"    , true,  "per-tree Time budget in seconds; slower trees are skipped (default=0, none)");
+		coptions.addOption("mxl", "maxleaves"  , true,  "per-tree budget of leaves; bigger trees are skipped (default=0, none)");
+		coptions.addOption("top", "top"        , true,  "keep only the <arg> best qualifying trees, ranked by strong nodes, all nodes and supports");
+		coptions.addOption("res", "resume"     , false, "Resume an interrupted scan from its journal");
+		coptions.addOption("wat", "watch"      , false, "keep Watching the input directory for new or modified trees");
+		coptions.addOption("est", "estimate"   , true,  "screen a stratified sample of <arg> trees and project hits and run time (ESTimate); no output is written");
+		coptions.addOption("std", "stdin"      , false, "read 'query<TAB>newick' records from STDin and write results to stdout");
+		coptions.addOption("fmt", "format"     , true,  "output ForMaT of --stdin mode: tsv or jsonl (default=tsv)");
+		coptions.addOption("met", "metrics"    , true,  "write per-stage timing METrics to <arg>.metrics.json and <arg>.metrics.prom");
+		coptions.addOption("prf", "profile"    , true,  "write a bounded flight recording (PRoFile) to the file <arg> (e.g., run1.jfr)");
 		
 		HelpFormatter formatter = new HelpFormatter();
 		/** add null comparator so options are sorted in original order */
@@ -217,12 +489,31 @@ public class NestedIn {
 			if (line.hasOption("donor"))     donor         = line.getOptionValue("donor");
 			if (line.hasOption("optional"))  optionals     = line.getOptionValue("optional");
 			if (line.hasOption("ignore"))    ignored       = line.getOptionValue("ignore");
+			if (line.hasOption("taxonomy"))  taxonomy      = line.getOptionValue("taxonomy");
 			if (line.hasOption("cutoff"))    cut           = Double.parseDouble(line.getOptionValue("cutoff")) ;
 			if (line.hasOption("ssnode"))    minStrongNode = Integer.parseInt(line.getOptionValue("ssnode"));
 			if (line.hasOption("asnode"))    minAllNode    = Integer.parseInt(line.getOptionValue("asnode"));
 			if (line.hasOption("ingroup"))   getInGroup    = true;
+			if (line.hasOption("aggregate")) aggregate     = true;
+			if (line.hasOption("replicates")) replicates   = line.getOptionValue("replicates");
+			if (line.hasOption("index"))     indexPrefix   = line.getOptionValue("index");
+			if (line.hasOption("generalized")) generalized = true;
+			if (line.hasOption("pattern"))   patternText   = line.getOptionValue("pattern");
+			if (line.hasOption("treeform"))  treeForm      = line.getOptionValue("treeform");
 			if (line.hasOption("outgroupsize"))  minOutGroupSize = Integer.parseInt(line.getOptionValue("outgroupsize"));
 			if (line.hasOption("thread"))    thread        = Integer.parseInt(line.getOptionValue("thread"));
+			if (line.hasOption("timeout"))   timeout       = Double.parseDouble(line.getOptionValue("timeout"));
+			if (line.hasOption("maxleaves")) maxLeaves     = Integer.parseInt(line.getOptionValue("maxleaves"));
+			if (line.hasOption("top"))       top           = true;
+			if (line.hasOption("top"))       topSize       = Integer.parseInt(line.getOptionValue("top"));
+			if (line.hasOption("resume"))    resume        = true;
+			if (line.hasOption("watch"))     watch         = true;
+			if (line.hasOption("stdin"))     stdin         = true;
+			if (line.hasOption("estimate"))  estimate      = true;
+			if (line.hasOption("estimate"))  estimateSize  = Integer.parseInt(line.getOptionValue("estimate"));
+			if (line.hasOption("format"))    format        = line.getOptionValue("format");
+			if (line.hasOption("metrics"))   metrics       = line.getOptionValue("metrics");
+			if (line.hasOption("profile"))   profile       = line.getOptionValue("profile");
 		}
 		catch( ParseException exp) {
 			System.out.println( "Unexpected exception: " + exp.getMessage());
@@ -232,15 +523,67 @@ public class NestedIn {
 		}
 		
 		/** quit if no input directory is provided */
-		if (indir.isEmpty()) {
+		if (indir.isEmpty() && !stdin) {
 			System.out.println("Warning: no input directory is specified");
 			System.exit(1);
 		}
+		/** quit if the sample size of estimate mode is not positive */
+		if (estimate && estimateSize <= 0) {
+			System.out.println("Warning: sample size of --estimate must be positive: " + estimateSize);
+			System.exit(1);
+		}
+		/** quit if the number of top trees is not positive, or trees are not screened in a single scan */
+		if (top && topSize <= 0) {
+			System.out.println("Warning: number of trees of --top must be positive: " + topSize);
+			System.exit(1);
+		}
+		if (top && (resume || watch)) {
+			System.out.println("Warning: --top cannot be combined with --resume or --watch");
+			System.exit(1);
+		}
+		/** quit if the output format is unknown */
+		if (!format.equals(Streamer.TSV) && !format.equals(Streamer.JSONL)) {
+			System.out.println("Warning: unknown output format: " + format);
+			System.exit(1);
+		}
+		/** quit if the tree form is unknown */
+		if (!TreeForm.isValid(treeForm)) {
+			System.out.println("Warning: unknown tree form: " + treeForm);
+			System.exit(1);
+		}
 		/** quit if no donor taxa are provided */
 		if (this.donor.isEmpty()) {
 			System.out.println("Warning: no donor(s) is specified");
 			System.exit(1);
 		}
+		/** quit if the taxonomy table cannot be read */
+		if (!taxonomy.isEmpty()) {
+			try {
+				Taxonomy.load(Paths.get(taxonomy));
+			} catch (IOException | IllegalArgumentException e) {
+				System.out.println("Warning: cannot read taxonomy table " + taxonomy + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		/** quit if the pattern is not well formed (taxa are resolved with the taxonomy, if any) */
+		if (!patternText.isEmpty()) {
+			try {
+				pattern = new TreePattern(patternText);
+			} catch (IllegalArgumentException e) {
+				System.out.println("Warning: invalid pattern: " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		/** quit if the tree index cannot be read; it is created if it does not exist */
+		if (!indexPrefix.isEmpty() && !stdin) {
+			index = new TreeIndex(indexPrefix);
+			try {
+				index.load();
+			} catch (IOException | RuntimeException e) {
+				System.out.println("Warning: cannot read tree index " + indexPrefix + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
 
 	}
 	
@@ -260,12 +603,19 @@ public class NestedIn {
 				if (minAllNode>2) outHGT = outHGT + "_Asn" + Integer.toString(minAllNode);
 			}
 			if (minOutGroupSize>0) outHGT = outHGT + "_OutGrpSz" + Integer.toString(minOutGroupSize);
+			if (generalized) outHGT = outHGT + "_Gen";
+			if (pattern != null) outHGT = outHGT + "_Pat";
+			if (top) outHGT = outHGT + "_Top" + Integer.toString(topSize);
 			
 			outHGT = outHGT.replaceAll(",", "");
 		}
 		/** create output directory and figure out out-file */
 		outDir = outHGT + ".trees";
 		new File(outDir).mkdirs();
+		journalFile = outHGT + ".journal.txt";
+		skippedFile = outHGT + ".skipped.txt";
+		aggregateFile = outHGT + ".donors.txt";
+		replicatesFile = outHGT + ".replicates.txt";
 		outHGT = outHGT + ".candidates.txt";
 	}
 }
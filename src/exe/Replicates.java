@@ -0,0 +1,126 @@
+package exe;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import newicktree.Categories;
+import newicktree.SplitCounter;
+
+/**
+ * The class Replicates gives each supporting node of a qualifying tree its frequency
+ * across the replicate trees (e.g., bootstrap or UFBoot trees) lying next to the tree
+ * file: "mydir/gene.contree" is matched with "mydir/gene.ufboot" for the extension
+ * "ufboot". Replicates are streamed through a SplitCounter, so they are never held in
+ * memory together. One line is kept for each supporting node:
+ * "query \t support \t frequency \t replicates holding the node/replicates \t donors".
+ */
+public class Replicates {
+	private String extension;
+	private Categories categories;
+	private ConcurrentHashMap<String,List<String>> rows = new ConcurrentHashMap<String,List<String>>();
+	private AtomicInteger nbMissing = new AtomicInteger();
+
+	/**
+	 * Constructor
+	 * @param extension extension of replicate tree files, replacing that of the tree file
+	 * @param donor a string for donor species. Multiple species are separated by comma ','.
+	 * @param optionals a string for optional species. Multiple species are separated by comma ','.
+	 * @param ignored a string for species to be ignored. Multiple species are separated by comma ','.
+	 */
+	public Replicates(String extension, String donor, String optionals, String ignored) {
+		this.extension = extension.startsWith(".") ? extension : "." + extension;
+		this.categories = Categories.of(donor, optionals, ignored);
+	}
+
+	/**
+	 * Return the replicate trees of a tree file
+	 * @param intree a string for path leading to the newick tree file
+	 */
+	public Path getFile(String intree) {
+		int slash = intree.lastIndexOf('/');
+		int dot = intree.lastIndexOf('.');
+		String stem = dot > slash + 1 ? intree.substring(0, dot) : intree;
+		return Paths.get(stem + extension);
+	}
+
+	/**
+	 * Count the supporting nodes of a qualifying tree in its replicate trees
+	 * @param intree a string for path leading to the newick tree file
+	 * @param verdict the outcome of screening the tree
+	 */
+	public void add(String intree, Verdict verdict) {
+		Path file = getFile(intree);
+		if (!Files.exists(file)) {
+			nbMissing.incrementAndGet();
+			System.out.println("#-> errorous reading replicate trees: " + file);
+			return;
+		}
+		SplitCounter counter = new SplitCounter(verdict.getQuery(), categories);
+		ArrayList<String[]> nodes = new ArrayList<String[]>();
+		for (String record : verdict.getSupportDonorsAndOptionals()) {
+			String[] fields = record.split("\t", -1);
+			ArrayList<String> ingroup = new ArrayList<String>();
+			for (int i=1; i<fields.length; i++) {
+				if (!fields[i].isEmpty()) ingroup.addAll(Arrays.asList(fields[i].split(",")));
+			}
+			counter.addSplit(ingroup);
+			nodes.add(fields);
+		}
+		try {
+			counter.addTrees(file);
+		} catch (IOException | IllegalArgumentException e) {
+			nbMissing.incrementAndGet();
+			System.out.println("#-> errorous reading replicate trees: " + file);
+			return;
+		}
+		ArrayList<String> lines = new ArrayList<String>();
+		for (int i=0; i<nodes.size(); i++) {
+			String[] fields = nodes.get(i);
+			lines.add(verdict.getQuery() + "\t" + fields[0] + "\t"
+			          + String.format(Locale.ROOT, "%.3f", counter.getFrequency(i)) + "\t"
+			          + counter.getCount(i) + "/" + counter.getNbTrees() + "\t"
+			          + (fields.length > 1 ? fields[1] : ""));
+		}
+		rows.put(verdict.getQuery(), lines);
+	}
+
+	/** return the number of qualifying trees whose replicates could not be read */
+	public int getNbMissing() {
+		return nbMissing.get();
+	}
+
+	/**
+	 * Write one line per supporting node, ordered by query
+	 * @param path a string for the output file
+	 */
+	public void write(String path) {
+		try {
+			FileWriter writer = new FileWriter(path);
+			writer.write("Gene\tSupport\tFrequency\tReplicates\tDonors\n");
+			for (Map.Entry<String,List<String>> e : new TreeMap<String,List<String>>(rows).entrySet()) {
+				for (String line : e.getValue()) writer.write(line + "\n");
+			}
+			writer.close();
+		} catch (IOException e) {
+			System.out.println("#-> errorous writting to file: " + path);
+		}
+	}
+
+	/** return a line for the run summary */
+	public String summary(String path) {
+		String line = "replicate support: " + rows.size() + " trees; see " + path;
+		if (nbMissing.get() > 0) line += " (" + nbMissing.get() + " without readable replicates)";
+		return line;
+	}
+}
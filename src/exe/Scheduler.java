@@ -0,0 +1,49 @@
+package exe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The class Scheduler hands out tree files to Task workers, largest file first
+ * (longest-processing-time-first scheduling), so that big trees are not picked up
+ * at the end of a run while other workers sit idle. Each tree is screened by a single
+ * worker, in time linear in its size (see newicktree.LeafTable).
+ */
+public class Scheduler {
+	private List<Path> files = new ArrayList<Path>();
+	private CountSyn count = new CountSyn();
+
+	/**
+	 * Constructor
+	 * @param files a list of tree files; it is sorted by decreasing size
+	 */
+	public Scheduler(List<Path> files) {
+		this.files = files;
+		HashMap<Path,Long> sizes = new HashMap<Path,Long>();
+		for (Path p : files) sizes.put(p, size(p));
+		files.sort(Comparator.comparing((Path p) -> sizes.get(p)).reversed());
+	}
+
+	/**
+	 * Return the next tree file to screen
+	 * @return a path, or null once all files have been handed out
+	 */
+	public Path next() {
+		int index = count.getNext() - 1;
+		if (index >= files.size()) return null;
+		return files.get(index);
+	}
+
+	private static long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+}
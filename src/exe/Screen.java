@@ -0,0 +1,90 @@
+package exe;
+
+import metrics.Metrics;
+import metrics.Metrics.Stage;
+import newicktree.NewickTree;
+import newicktree.Splits;
+import newicktree.TestMonophyly;
+
+/**
+ * The class Screen examines a single newick tree against the user criteria (see Criteria).
+ * It knows nothing about files or output directories, so the
+ * same screen serves the directory scan as well as streamed input.
+ */
+public class Screen {
+	private Criteria criteria;
+
+	/**
+	 * Constructor
+	 * @param criteria a Criteria object holding the user criteria
+	 */
+	public Screen(Criteria criteria) {
+		this.criteria = criteria;
+	}
+	
+	/**
+	 * Examine a single tree
+	 * @param query a string for the query sequence
+	 * @param line a newick tree string
+	 * @return a Verdict object
+	 */
+	public Verdict evaluate(String query, String line) {
+		// create NewickTree object and parse the tree
+		long t0 = System.nanoTime();
+		NewickTree tree = new NewickTree(line);
+		long t1 = System.nanoTime();
+		/* bi-partitions are leaf ranges, classified in time linear in the tree size (see LeafTable) */
+		Splits splits = tree.getSplits();
+		long t2 = System.nanoTime();
+		TestMonophyly test = new TestMonophyly(splits, query, criteria.getDonor(), criteria.getCut(), criteria.getOptionals(),
+				                               criteria.getIgnored(), criteria.getMinOutGroupSize(),
+				                               criteria.getPattern());
+		if (criteria.isGeneralized()) {
+			test.testGeneralized();
+		} else {
+			test.testExclusive();
+		}
+		long t3 = System.nanoTime();
+		Metrics.record(Stage.PARSE, t1 - t0);
+		Metrics.record(Stage.SPLIT, t2 - t1);
+		Metrics.record(Stage.CLASSIFY, t3 - t2);
+
+		/** get destine of the input tree */
+		int myFate = fate(test.getStrongNodes(), test.getWeakNodes(), test.getAdjustedStrongNodes());
+		if (!test.isPatternMatched()) myFate = 0;
+		/* adjusted nodes are reported as strong nodes */
+		Verdict verdict = new Verdict(query, test.getStrongNodes() + test.getAdjustedStrongNodes(), test.getWeakNodes(), myFate,
+				                      test.getSupportDonorsAndOptionals(), tree.getLeafCount());
+		verdict.setCost(splits.getInteriorCount(), t1 - t0, t3 - t1);
+		return verdict;
+	}
+
+	/**
+	 * Define the fate bi-partition
+	 * @param strong an integer for the number of nodes strongly supporting desired monophyly
+	 * @param weak an integer for the number of nodes weakly supporting desired monophyly
+	 * @param fixed an integer for the number of nodes nodes supporting desired monophyly after fixing
+	 *        a limited number of potential contaminations
+	 * @return a integer coding for different fates of a tree ('9': strong; '2': fine; '1': week; '0': failed)
+	 */
+	public int fate (int strong, int weak, int fixed) {
+		int mystrong = strong + fixed;
+		int myall    = strong + weak + fixed;
+		if (mystrong > criteria.getMinStrongNode()) {
+			return 9;        // strong support
+		}else if (mystrong == criteria.getMinStrongNode() && myall >= criteria.getMinAllNode()) {
+			return 2;        // ok support
+		}else if (mystrong ==1) {
+			return 1;        // weak support
+		}else {
+			return 0;        // non-monophyletic support
+		}
+	}
+
+	/*
+	 * getters
+	 */
+	public Criteria getCriteria() {
+		return criteria;
+	}
+}
@@ -0,0 +1,138 @@
+package exe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import newicktree.NewickTree;
+
+/**
+ * The class Streamer screens trees read from a stream of "query \t newick" records
+ * and writes qualifying trees to an output stream as soon as they are found,
+ * either as tab-separated lines ("query \t strong \t weak \t total") or as JSON lines.
+ * Records are handed to a fixed pool of threads through a bounded queue, so memory
+ * stays bounded for input of any length. Output order follows completion, not input.
+ */
+public class Streamer {
+	public static final String TSV   = "tsv";
+	public static final String JSONL = "jsonl";
+
+	/* number of queued records per thread */
+	private static final int BACKLOG = 64;
+
+	private Screen screen;
+	private int thread;
+	private String format;
+	private boolean getInGroup;
+	private PrintStream out;
+	private Watchdog watchdog;
+	private long nbRecords = 0;
+	private long nbHits = 0;
+
+	/**
+	 * Constructor
+	 * @param screen a Screen object holding user criteria
+	 * @param thread number of threads to use
+	 * @param format output format, TSV or JSONL
+	 * @param getInGroup boolean whether or not to write ingroup details (JSON lines only)
+	 * @param out the stream results are written to
+	 * @param watchdog a Watchdog object enforcing per-tree budgets and reporting skipped trees
+	 */
+	public Streamer(Screen screen, int thread, String format, boolean getInGroup, PrintStream out, Watchdog watchdog) {
+		this.screen = screen;
+		this.thread = thread;
+		this.format = format;
+		this.getInGroup = getInGroup;
+		this.out = out;
+		this.watchdog = watchdog;
+	}
+
+	/**
+	 * Screen all records of an input stream
+	 * @param in the stream records are read from
+	 * @throws IOException
+	 */
+	public void stream(InputStream in) throws IOException {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(thread, thread, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(thread * BACKLOG),
+				/* let the reader screen a record itself when the queue is full */
+				new ThreadPoolExecutor.CallerRunsPolicy());
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		while (true) {
+			String line = reader.readLine();
+			if (line == null) break;
+			if (line.trim().isEmpty()) continue;
+			nbRecords++;
+			int tab = line.indexOf('\t');
+			if (tab < 1) {
+				System.err.println("#-> errorous record " + nbRecords + ": expecting query<TAB>newick");
+				continue;
+			}
+			final String query = line.substring(0, tab);
+			final String newick = line.substring(tab+1);
+			pool.execute(() -> screen(query, newick));
+		}
+
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			System.err.println("#-> interrupted while screening streamed trees");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Screen a single record and write it out if it qualifies
+	 * @param query a string for the query sequence
+	 * @param newick a newick tree string
+	 */
+	private void screen(String query, String newick) {
+		int leaves = NewickTree.countLeaves(newick);
+		if (!watchdog.admits(leaves)) {
+			watchdog.skip(query, watchdog.tooBig(leaves));
+			return;
+		}
+		Verdict verdict;
+		Watchdog.Ticket ticket = watchdog.begin();
+		try {
+			verdict = screen.evaluate(query, newick);
+		} catch (CancellationException e) {
+			watchdog.end(ticket);
+			watchdog.skip(query, ticket.isExpired() ? watchdog.tooSlow() : e.getMessage());
+			return;
+		} catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+			watchdog.end(ticket);
+			System.err.println("#-> errorous tree for query: " + query);
+			return;
+		}
+		watchdog.end(ticket);
+		if (!verdict.isHit()) return;
+		String record = format.equals(JSONL) ? verdict.toJson(getInGroup) : verdict.getCode();
+		synchronized (out) {
+			out.println(record);
+			out.flush();
+			nbHits++;
+		}
+	}
+
+	/*
+	 * getters
+	 */
+	public long getNbRecords() {
+		return nbRecords;
+	}
+	public long getNbHits() {
+		synchronized (out) {
+			return nbHits;
+		}
+	}
+}
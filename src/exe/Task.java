@@ -8,9 +8,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
+import metrics.Metrics;
+import metrics.Metrics.Stage;
+import metrics.TreeEvent;
 import newicktree.NewickTree;
-import newicktree.TestMonophyly;
 import progress.Bar;
 
 /**
@@ -19,67 +22,117 @@ import progress.Bar;
  *
  */
 public class Task extends Thread{
-	List<Path> files = new ArrayList<Path>();
-	CountSyn count = new CountSyn();
-	String donor;
-	double cut;
-	String optionals;
-	String ignored;
-	int minStrongNode;
-	int minAllNode;
-	int minOutGroupSize;
-	ArrayList<String> results = new ArrayList<String>();
+	Scheduler scheduler;
+	Criteria criteria;
+	List<String> results = new ArrayList<String>();
 	String outDir;
 	boolean getInGroup = false;
 	Bar progress = new Bar(100);
+	Journal journal;
+	Watchdog watchdog;
+	String treeForm = TreeForm.ORIGINAL;
+	Aggregate aggregate;
+	Replicates replicates;
+	TreeIndex index;
+	TopHits top;
+	/* the error that ended this worker, if any */
+	private volatile Throwable failure = null;
+	/* journal lines waiting to be handed over to the journal */
+	ArrayList<String> pending = new ArrayList<String>();
+	long lastFlush = System.currentTimeMillis();
 	
 	/**
 	 * Constructor
-	 * @param files a list containing a series of file paths
-	 * @param count a CountSyn object for task counting across threads 
-	 * @param donor a string for donor species. Multiple species are separated by comma ','.
-	 * @param cut a double as cutoff for minimal branch support
-	 * @param optionals a string for optional species. Multiple species are separated by comma ','.
-	 * @param ignored a string for species to be ignored. Multiple species are separated by comma ','.
-	 * @param minStrongNode an integer defining minimal number of nodes supporting desired monophyly strongly.
-	 * @param minAllNode an integer defining minimal number of all nodes supporting desired monophyly regardless of support levels.
+	 * @param scheduler a Scheduler object handing out tree files across threads
+	 * @param criteria a Criteria object holding the user criteria
 	 * @param results a list holding strings for results.
 	 * @param outDir a string defining output directory
 	 * @param getInGroup boolean whether or not to retrieve sequences in monophyly ingroup
-	 * @param minOutGroupSize an integer defining the minimal number of sequences required in outgroup
 	 * @param progress a Bar object
+	 * @param journal a Journal object recording finished trees (null if not journaled)
+	 * @param watchdog a Watchdog object enforcing per-tree budgets and reporting skipped trees
+	 * @param treeForm a string for the form qualifying trees are written in (see TreeForm)
+	 * @param aggregate an Aggregate object counting donor lineages of qualifying trees (null if not aggregated)
+	 * @param replicates a Replicates object computing frequencies of supporting nodes in replicate trees (or null)
+	 * @param index a TreeIndex object indexing the leaves of trees read (or null)
+	 * @param top a TopHits object keeping the best qualifying trees of this worker (null to keep all)
 	 */
-	public Task(List<Path> files, CountSyn count, String donor, double cut, String optionals, 
-			    String ignored, int minStrongNode, int minAllNode, ArrayList<String> results, 
-			    String outDir, boolean getInGroup, int minOutGroupSize, Bar progress) {
-		this.files = files;
-		this.count = count;
-		this.donor = donor;
-		this.cut = cut;
-		this.optionals = optionals;
-		this.ignored  = ignored;
-		this.minStrongNode = minStrongNode;
-		this.minAllNode = minAllNode;
+	public Task(Scheduler scheduler, Criteria criteria, List<String> results, String outDir, boolean getInGroup,
+			    Bar progress, Journal journal, Watchdog watchdog, String treeForm, Aggregate aggregate,
+			    Replicates replicates, TreeIndex index, TopHits top) {
+		this.scheduler = scheduler;
+		this.criteria = criteria;
 		this.results = results;
 		this.outDir = outDir;
 		this.getInGroup = getInGroup;
-		this.minOutGroupSize = minOutGroupSize; 
 		this.progress = progress;
+		this.journal = journal;
+		this.watchdog = watchdog;
+		this.treeForm = treeForm;
+		this.aggregate = aggregate;
+		this.replicates = replicates;
+		this.index = index;
+		this.top = top;
 	}
 	
 	/**
 	 * Launch scanning for the whole set of input trees
 	 */
 	public void run() {
-		while(true){
-			int index = this.count.getNext() -1 ;
-			if (index>=files.size()) break;
-			String code = Atree( files.get(index).toString(), donor, cut, optionals, ignored, minOutGroupSize);
-			if (!code.isEmpty()) results.add(code);
-			progress.grow(index+1);
+		try {
+			while(true){
+				Path file = scheduler.next();
+				if (file == null) break;
+				String code = "";
+				try {
+					code = Atree(file.toString());
+				} catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+					/* a tree failing outside of its evaluation (e.g., while read or written) is skipped too */
+					watchdog.skip(file.getFileName().toString(), "error: " + e);
+				}
+				/* in top-k mode, qualifying trees are kept in the bounded heap instead */
+				if (!code.isEmpty() && top == null) results.add(code);
+				if (journal != null) record(file, code, watchdog.takeSkipped());
+				progress.step(!code.isEmpty());
+			}
+		} catch (Throwable e) {
+			failure = e;
+			throw e;
+		} finally {
+			if (journal != null) flush();
 		}
 	}
 	
+	/** return true if the calling thread skipped a tree since it last asked (see Watchdog.takeSkipped) */
+	public boolean takeSkipped() {
+		return watchdog.takeSkipped();
+	}
+	
+	/** return the error that ended this worker, or null if it went through all its trees */
+	public Throwable getFailure() {
+		return failure;
+	}
+	
+	/**
+	 * Keep a journal line for a finished tree and hand the collected lines to
+	 * the journal once the batch is full or has waited too long
+	 * @param file path to the finished tree
+	 * @param code coded node information; empty if the tree did not qualify
+	 * @param failed whether the tree failed or was skipped
+	 */
+	private void record(Path file, String code, boolean failed) {
+		pending.add(Journal.entry(file, code, failed));
+		if (pending.size() >= Journal.BATCH || 
+			System.currentTimeMillis() - lastFlush >= Journal.LATENCY) flush();
+	}
+	
+	/** hand all collected journal lines to the journal */
+	private void flush() {
+		journal.append(pending);
+		pending.clear();
+		lastFlush = System.currentTimeMillis();
+	}
+	
 	/** 
 	 * Examine a single tree. If input tree meets criteria, 
 	 * 1) write the tree the output directory
@@ -93,12 +146,45 @@ public class Task extends Thread{
 	 * @return string
 	 */
 	public String Atree (String intree, String donor, double cut, String optionals, String ignored, int minOutGroupSize) {
-
+		Criteria given = criteria.copy();
+		given.setDonor(donor);
+		given.setCut(cut);
+		given.setOptionals(optionals);
+		given.setIgnored(ignored);
+		given.setMinOutGroupSize(minOutGroupSize);
+		return Atree(intree, given);
+	}
+	
+	/**
+	 * Same as above, with the criteria of this task
+	 * @param intree a string for path leading to the newick tree file.
+	 * @return string
+	 */
+	public String Atree (String intree) {
+		return Atree(intree, criteria);
+	}
+	
+	private String Atree (String intree, Criteria criteria) {
 		String query = getQuery(intree);
 		if (query.isEmpty()) return "";
 		String filename = intree.substring(intree.lastIndexOf("/")+1);
 	
 		// read input tree file (get the first line actually)
+		/* the event is committed on every way out, with the outcome set before leaving */
+		TreeEvent event = new TreeEvent();
+		event.begin();
+		event.file = intree;
+		event.outcome = TreeEvent.ERROR;
+		try {
+			return screen(intree, query, filename, criteria, event);
+		} finally {
+			event.commit();
+		}
+	}
+	
+	/* screen a tree for Atree(), filling in the flight recorder event as far as it gets */
+	private String screen(String intree, String query, String filename, Criteria criteria, TreeEvent event) {
+		long t0 = Metrics.start();
 		Path fp = Paths.get(intree);
 		String line = new String("");
 		try {
@@ -112,39 +198,79 @@ public class Task extends Thread{
 		catch(IOException e){
 			System.out.println("#-> erronreous reading file: " + intree);
 		}		
-		if (line == null) return "";
+		if (line == null) {
+			event.outcome = TreeEvent.UNREADABLE;
+			return "";
+		}
+		if (index != null) index.add(fp, line);
+		Metrics.stop(Stage.READ, t0);
 
-		// create NewickTree object and launch decomposition
-		NewickTree tree = new NewickTree(line);
-		List<String> bp = tree.getBipartitions(query);
-		TestMonophyly test = new TestMonophyly(bp, query, donor, cut, optionals, ignored, minOutGroupSize);
-		test.testExclusive();
+		/** skip trees over the leaf budget before parsing them */
+		int leaves = NewickTree.countLeaves(line);
+		event.leaves = leaves;
+		if (!watchdog.admits(leaves)) {
+			watchdog.skip(filename, watchdog.tooBig(leaves));
+			Metrics.treeDone(filename, leaves, t0, false);
+			event.outcome = TreeEvent.SKIPPED;
+			event.reason = watchdog.tooBig(leaves);
+			return "";
+		}
 		
-		/* test monophyly with a limited irrelevant sequences. TBD*/
-		//test.testGeneralized();
-
-		/** get destine of the input tree */
-		int myFate = fate(test.getStrongNodes(), test.getWeakNodes(), test.getAdjustedStrongNodes());
+		/** examine the tree against user criteria, within its time budget */
+		Screen screen = new Screen(criteria);
+		Verdict verdict;
+		Watchdog.Ticket ticket = watchdog.begin();
+		try {
+			verdict = screen.evaluate(query, line);
+		} catch (CancellationException e) {
+			watchdog.end(ticket);
+			String reason = ticket.isExpired() ? watchdog.tooSlow() : e.getMessage();
+			watchdog.skip(filename, reason);
+			Metrics.treeDone(filename, leaves, t0, false);
+			event.outcome = TreeEvent.SKIPPED;
+			event.reason = reason;
+			return "";
+		} catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+			/* the partly built tree is garbage by now, so the worker can go on with the next one */
+			watchdog.end(ticket);
+			watchdog.skip(filename, "error: " + e);
+			Metrics.treeDone(filename, leaves, t0, false);
+			event.reason = e.toString();
+			return "";
+		}
+		watchdog.end(ticket);
+		describe(event, verdict);
 		
 		/** if input tree meet criteria, do the following */
-		if (myFate > 1 ) {
-			/* 1) write input tree to output directory */
+		if (verdict.isHit()) {
+			long t = Metrics.start();
+			/* 1) write input tree to output directory; in top-k mode, only the best trees are written at the end */
 			String outputrees = outDir + "/" + filename;
-			try{
-				FileWriter writer = new FileWriter(outputrees);
-				writer.write(line + "\n");
-				writer.close();
+			String tree = line;
+			try {
+				tree = TreeForm.apply(treeForm, line, verdict);
+			} catch (IllegalArgumentException e) {
+				System.out.println("#-> errorous rerooting tree " + filename + ": " + e.getMessage());
 			}
-			catch(IOException e){
-				System.out.println("#-> errorous writing tree file: " + outputrees);
+			if (top != null) {
+				top.offer(new TopHits.Hit(filename, tree, verdict, getInGroup));
+			} else {
+				try{
+					FileWriter writer = new FileWriter(outputrees);
+					writer.write(tree + "\n");
+					writer.close();
+				}
+				catch(IOException e){
+					System.out.println("#-> errorous writing tree file: " + outputrees);
+				}
 			}
 			
 			/* 2) if requested, write ingroup details to output directory */
-			if (getInGroup) {
+			if (getInGroup && top == null) {
 				String outputInGroupSeqs = outDir + "/" + filename + ".ingroup.txt";
 				try {
 					FileWriter writer = new FileWriter(outputInGroupSeqs);
-					for (String seqs : test.getSupportDonorsAndOptionals()) {
+					for (String seqs : verdict.getSupportDonorsAndOptionals()) {
 						writer.write(seqs + "\n");
 					}
 					writer.close();
@@ -154,20 +280,40 @@ public class Task extends Thread{
 				}
 			}
 			
-			/* 3) make coded node information and return */
-			String outcome = query +"\t"+ 
-							 test.getStrongNodes() +"\t"+ 
-							 test.getWeakNodes() + "\t" + 
-					         (test.getStrongNodes() + test.getWeakNodes())
-					         ;
-			return outcome;
+			/* 3) if requested, count donor lineages and clades of supporting nodes */
+			if (aggregate != null) aggregate.add(verdict);
+			
+			/* 4) if requested, find supporting nodes in replicate trees */
+			if (replicates != null) replicates.add(intree, verdict);
+			
+			Metrics.stop(Stage.OUTPUT, t);
+			Metrics.treeDone(filename, verdict.getLeafCount(), t0, true);
+			event.outcome = TreeEvent.HIT;
+			
+			/* 5) return coded node information */
+			return verdict.getCode();
 		}
 		
+		Metrics.treeDone(filename, verdict.getLeafCount(), t0, false);
+		event.outcome = TreeEvent.MISS;
 		return "";
 	}
 	
+	/**
+	 * Fill in the flight recorder event of a screened tree
+	 * @param event a TreeEvent object begun when the tree was picked up
+	 * @param verdict the outcome of screening the tree
+	 */
+	private void describe(TreeEvent event, Verdict verdict) {
+		event.leaves = verdict.getLeafCount();
+		event.splits = verdict.getSplitCount();
+		event.parseDuration = verdict.getParseNanos();
+		event.evaluateDuration = verdict.getEvaluateNanos();
+		event.hit = verdict.isHit();
+	}
+	
 	public String Atree (String intree, String donor, double cut, String optionals, String ignored) {
-		return Atree(intree, donor, cut, optionals, ignored, minOutGroupSize);
+		return Atree(intree, donor, cut, optionals, ignored, criteria.getMinOutGroupSize());
 	}
 	public String Atree (String intree, String donor, double cut, String optionals) {
 		String ignored = new String();
@@ -192,32 +338,9 @@ public class Task extends Thread{
 		return Atree(str, donor, cut, optionals);
 	}
 	
-	/**
-	 * Define the fate bi-partition
-	 * @param strong an integer for the number of nodes strongly supporting desired monophyly
-	 * @param weak an integer for the number of nodes weakly supporting desired monophyly
-	 * @param fixed an integer for the number of nodes nodes supporting desired monophyly after fixing
-	 *        a limited number of potential contaminations
-	 * @return a integer coding for different fates of a tree ('9': strong; '2': fine; '1': week; '0': failed)
-	 */
-	private int fate (int strong, int weak, int fixed) {
-		int mystrong = strong + fixed;
-		int myall    = strong + weak + fixed;
-		if (mystrong > minStrongNode) {
-			return 9;        // strong support
-		}else if (mystrong == minStrongNode && myall >= minAllNode) {
-			return 2;        // ok support
-		}else if (mystrong ==1) {
-			return 1;        // weak support
-		}else {
-			return 0;        // non-monophyletic support
-		}
-	}
-	
-	
 	// figure out query name from the file name using "_2refseq" as marker
 	// ??? to be thrown here
-	public String getQuerySpecial(String input, String mark) {
+	public static String getQuerySpecial(String input, String mark) {
 		String query = null;
 		int index_ending = 0;
 		int index_leading = input.lastIndexOf("/");
@@ -239,7 +362,7 @@ public class Task extends Thread{
 	 * @param input a string for input tree fine name
 	 * @return a string for query sequence name
 	 */
-	public String getQuery(String input) {
+	public static String getQuery(String input) {
 		String query = null;
 		query = getQuerySpecial(input, "_2refseq");
 		if (query == null) query = getQuerySpecial(input, ".contre");
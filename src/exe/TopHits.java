@@ -0,0 +1,145 @@
+package exe;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The class TopHits keeps the best k qualifying trees seen by a worker in a bounded heap
+ * whose root is the worst tree kept, so that a better tree replaces it in log(k) steps
+ * and memory does not grow with the number of qualifying trees. The heaps of all workers
+ * are merged once the scan is over, and only the trees kept are written out.
+ *
+ * Trees are ranked by the number of strong nodes, then by the number of all supporting
+ * nodes (how deeply the query is nested in donors), then by the sum of the supports of
+ * these nodes; ties are broken by query name so that the ranking does not depend on
+ * the order the trees were screened in.
+ */
+public class TopHits {
+	private int k;
+	private PriorityQueue<Hit> heap = new PriorityQueue<Hit>();
+	private int nbOffered = 0;
+
+	/** a qualifying tree, with what is needed to write it out */
+	public static class Hit implements Comparable<Hit> {
+		String filename;
+		String tree;
+		String code;
+		String query;
+		int strong;
+		int total;
+		double supports;
+		List<String> ingroup;
+
+		/**
+		 * Constructor
+		 * @param filename a string for the name of the tree file
+		 * @param tree the newick tree string, in the form it is written
+		 * @param verdict the outcome of screening the tree
+		 * @param withIngroup whether or not to keep ingroup details
+		 */
+		public Hit(String filename, String tree, Verdict verdict, boolean withIngroup) {
+			this.filename = filename;
+			this.tree = tree;
+			this.code = verdict.getCode();
+			this.query = verdict.getQuery();
+			this.strong = verdict.getStrongNodes();
+			this.total = verdict.getStrongNodes() + verdict.getWeakNodes();
+			/* a record is "support \t donors \t optionals"; trees without supports add 0 */
+			for (String record : verdict.getSupportDonorsAndOptionals()) {
+				try {
+					supports += Double.parseDouble(record.substring(0, Math.max(0, record.indexOf('\t'))));
+				} catch (NumberFormatException e) {
+				}
+			}
+			this.ingroup = withIngroup ? verdict.getSupportDonorsAndOptionals() : null;
+		}
+
+		/** order from worst to best */
+		public int compareTo(Hit other) {
+			if (strong != other.strong) return Integer.compare(strong, other.strong);
+			if (total != other.total) return Integer.compare(total, other.total);
+			if (supports != other.supports) return Double.compare(supports, other.supports);
+			return other.query.compareTo(query);
+		}
+
+		/** return the coded node information "query \t strong nodes \t weak nodes \t all nodes" */
+		public String getCode() {
+			return code;
+		}
+
+		/**
+		 * Write the tree, and its ingroup details if kept, to the output directory
+		 * @param outDir a string defining output directory
+		 */
+		public void write(String outDir) {
+			String outputrees = outDir + "/" + filename;
+			try {
+				FileWriter writer = new FileWriter(outputrees);
+				writer.write(tree + "\n");
+				writer.close();
+			}
+			catch (IOException e) {
+				System.out.println("#-> errorous writing tree file: " + outputrees);
+			}
+			if (ingroup == null) return;
+			String outputInGroupSeqs = outDir + "/" + filename + ".ingroup.txt";
+			try {
+				FileWriter writer = new FileWriter(outputInGroupSeqs);
+				for (String seqs : ingroup) {
+					writer.write(seqs + "\n");
+				}
+				writer.close();
+			}
+			catch (IOException e) {
+				System.out.println("#-> errorous file writing to: " + outputInGroupSeqs);
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param k number of trees to keep
+	 */
+	public TopHits(int k) {
+		this.k = k;
+	}
+
+	/**
+	 * Keep a qualifying tree if it is among the best k seen so far
+	 * @param hit a qualifying tree
+	 */
+	public void offer(Hit hit) {
+		nbOffered++;
+		if (heap.size() < k) {
+			heap.add(hit);
+		} else if (hit.compareTo(heap.peek()) > 0) {
+			heap.poll();
+			heap.add(hit);
+		}
+	}
+
+	/** return the number of qualifying trees offered */
+	public int getNbOffered() {
+		return nbOffered;
+	}
+
+	/**
+	 * Merge the heaps of all workers
+	 * @param workers the TopHits objects of all workers
+	 * @return the best k trees, best first
+	 */
+	public static List<Hit> merge(List<TopHits> workers) {
+		if (workers.isEmpty()) return new ArrayList<Hit>();
+		TopHits merged = new TopHits(workers.get(0).k);
+		for (TopHits worker : workers) {
+			for (Hit hit : worker.heap) merged.offer(hit);
+		}
+		ArrayList<Hit> ranked = new ArrayList<Hit>(merged.heap);
+		Collections.sort(ranked, Collections.reverseOrder());
+		return ranked;
+	}
+}
@@ -0,0 +1,73 @@
+package exe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import newicktree.NewickParser;
+import newicktree.NewickWriter;
+import newicktree.Reroot;
+import newicktree.TreeNode;
+
+/**
+ * The class TreeForm decides how qualifying trees are written to the output directory:
+ *   original       - the input tree as it is (default)
+ *   querytop       - the same tree with the query written first (see NewickWriter)
+ *   outgroup       - rooted on the branch separating the biggest query-donor ingroup
+ *                    from the rest of the tree
+ *   leaf:NAME      - rooted on the branch leading to leaf NAME (or the first leaf containing it)
+ *   midpoint:A,B   - rooted at the midpoint of the path between leaves A and B
+ * Rerooted trees are written with the query first.
+ */
+public class TreeForm {
+	public static final String ORIGINAL = "original";
+	public static final String QUERYTOP = "querytop";
+	public static final String OUTGROUP = "outgroup";
+	public static final String LEAF     = "leaf:";
+	public static final String MIDPOINT = "midpoint:";
+
+	/** return true if the form is known */
+	public static boolean isValid(String form) {
+		return form.equals(ORIGINAL) || form.equals(QUERYTOP) || form.equals(OUTGROUP)
+				|| (form.startsWith(LEAF) && form.length() > LEAF.length())
+				|| (form.startsWith(MIDPOINT) && form.substring(MIDPOINT.length()).split(",").length == 2);
+	}
+
+	/**
+	 * Write a tree in the requested form
+	 * @param form one of the forms above
+	 * @param line a newick tree string
+	 * @param verdict the outcome of screening the tree
+	 * @return a newick tree string
+	 * @throws IllegalArgumentException if the tree cannot be rerooted as requested (e.g., a leaf is missing)
+	 */
+	public static String apply(String form, String line, Verdict verdict) {
+		if (form.equals(ORIGINAL)) return line;
+		String query = verdict.getQuery();
+		TreeNode root = NewickParser.parse(line);
+		if (form.equals(OUTGROUP)) {
+			root = Reroot.atOutgroup(root, query, biggestIngroup(verdict));
+		} else if (form.startsWith(LEAF)) {
+			root = Reroot.atLeaf(root, form.substring(LEAF.length()));
+		} else if (form.startsWith(MIDPOINT)) {
+			String[] leaves = form.substring(MIDPOINT.length()).split(",");
+			root = Reroot.atMidpoint(root, leaves[0], leaves[1]);
+		}
+		return NewickWriter.write(root, query);
+	}
+
+	/* donors and optionals of the supporting node with the biggest ingroup */
+	private static List<String> biggestIngroup(Verdict verdict) {
+		List<String> biggest = new ArrayList<String>();
+		for (String record : verdict.getSupportDonorsAndOptionals()) {
+			/* a record is "support \t donors \t optionals" with sequences joined by ',' */
+			String[] fields = record.split("\t", -1);
+			List<String> seqs = new ArrayList<String>();
+			for (int i=1; i<fields.length; i++) {
+				if (!fields[i].isEmpty()) seqs.addAll(Arrays.asList(fields[i].split(",")));
+			}
+			if (seqs.size() > biggest.size()) biggest = seqs;
+		}
+		return biggest;
+	}
+}
@@ -0,0 +1,313 @@
+package exe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import newicktree.Categories;
+import newicktree.Labels;
+import newicktree.NewickTree;
+
+/**
+ * The class TreeIndex is a persistent inverted index from leaf labels to the trees of an
+ * input directory holding them, so that a scan opens only trees with at least one donor
+ * leaf and the query leaf; other trees cannot qualify. Labels are matched to donor taxa
+ * the same way as in screening (see Categories), so taxa given by name, by group or
+ * through a taxonomy table are all covered by one index.
+ *
+ * Each tree file gets an increasing tree ID; the trees of a label are kept as a list of
+ * increasing IDs, encoded as gaps in variable-length bytes (7 bits per byte). Trees are
+ * indexed as workers read them, so a new or modified file (different size or modification
+ * time) is read once, screened and indexed in the same pass; a modified file gets a new ID
+ * and the old one is retired. Retired IDs are dropped when the index is saved if they
+ * outnumber the live ones.
+ *
+ * The index is saved as "prefix.labels.txt" (see Labels.save) and "prefix.postings.bin".
+ */
+public class TreeIndex {
+	private static final int MAGIC = 0x4E494458;
+	private static final int VERSION = 1;
+
+	private String prefix;
+	/* trees by ID: file name, size and modification time */
+	private ArrayList<String> names = new ArrayList<String>();
+	private long[] sizes = new long[64];
+	private long[] times = new long[64];
+	private BitSet retired = new BitSet();
+	private HashMap<String,Integer> ids = new HashMap<String,Integer>();
+	/* postings by label ID */
+	private Postings[] postings = new Postings[1024];
+	private int nbAdded = 0;
+
+	/** increasing tree IDs of a label, as gaps in variable-length bytes */
+	private static class Postings {
+		byte[] bytes = new byte[8];
+		int length = 0;
+		int count = 0;
+		int last = -1;
+
+		void add(int id) {
+			int gap = id - last;
+			if (length + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			while ((gap & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+				gap >>>= 7;
+			}
+			bytes[length++] = (byte) gap;
+			last = id;
+			count++;
+		}
+
+		/* set the bits of all IDs; with a map, IDs are renumbered and retired ones (-1) dropped */
+		void decode(BitSet into, int[] map) {
+			int id = -1;
+			int i = 0;
+			while (i < length) {
+				int gap = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = bytes[i++];
+					gap |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				id += gap;
+				int mapped = map == null ? id : map[id];
+				if (mapped >= 0) into.set(mapped);
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param prefix a string for the index files
+	 */
+	public TreeIndex(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Read the index saved by an earlier run, if any. Must be called before other
+	 * labels are seen, as label IDs are restored from the index (see Labels.load).
+	 * @return false if there was no index
+	 * @throws IOException if the index cannot be read
+	 * @throws IllegalStateException if the index does not match the labels seen so far
+	 */
+	public boolean load() throws IOException {
+		Path labels = Paths.get(prefix + ".labels.txt");
+		Path bin = Paths.get(prefix + ".postings.bin");
+		if (!Files.exists(labels) || !Files.exists(bin)) return false;
+		Labels.load(labels);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(bin)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a tree index: " + bin);
+			int nbTrees = in.readInt();
+			for (int i=0; i<nbTrees; i++) {
+				String name = in.readUTF();
+				long size = in.readLong();
+				long time = in.readLong();
+				boolean live = in.readBoolean();
+				int id = newTree(name, size, time);
+				if (!live) {
+					retired.set(id);
+					ids.remove(name);
+				}
+			}
+			int nbLabels = in.readInt();
+			for (int i=0; i<nbLabels; i++) {
+				int label = in.readInt();
+				Postings p = new Postings();
+				p.count = in.readInt();
+				p.last = in.readInt();
+				p.length = in.readInt();
+				p.bytes = new byte[Math.max(8, p.length)];
+				in.readFully(p.bytes, 0, p.length);
+				if (label >= postings.length) postings = Arrays.copyOf(postings, Math.max(label + 1, postings.length * 2));
+				postings[label] = p;
+			}
+		}
+		return true;
+	}
+
+	/* give a tree file the next ID */
+	private int newTree(String name, long size, long time) {
+		int id = names.size();
+		names.add(name);
+		if (id == sizes.length) {
+			sizes = Arrays.copyOf(sizes, id * 2);
+			times = Arrays.copyOf(times, id * 2);
+		}
+		sizes[id] = size;
+		times[id] = time;
+		Integer old = ids.put(name, id);
+		if (old != null) retired.set(old);
+		return id;
+	}
+
+	/* return the ID of a tree file if it is indexed and unchanged, otherwise -1 */
+	private int current(Path file) {
+		Integer id = ids.get(file.getFileName().toString());
+		if (id == null) return -1;
+		try {
+			if (Files.size(file) != sizes[id] || Files.getLastModifiedTime(file).toMillis() != times[id]) return -1;
+		} catch (IOException e) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Index a tree read by a worker, unless it is indexed and unchanged
+	 * @param file path to the tree file
+	 * @param line the newick tree string read from it
+	 */
+	public void add(Path file, String line) {
+		long size;
+		long time;
+		try {
+			size = Files.size(file);
+			time = Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return;
+		}
+		List<String> leaves = NewickTree.getLeafLabels(line);
+		int[] labels = new int[leaves.size()];
+		for (int i=0; i<labels.length; i++) labels[i] = Labels.id(leaves.get(i));
+		Arrays.sort(labels);
+		synchronized (this) {
+			Integer old = ids.get(file.getFileName().toString());
+			if (old != null && sizes[old] == size && times[old] == time) return;
+			int id = newTree(file.getFileName().toString(), size, time);
+			for (int i=0; i<labels.length; i++) {
+				if (i > 0 && labels[i] == labels[i-1]) continue;
+				int label = labels[i];
+				if (label >= postings.length) postings = Arrays.copyOf(postings, Math.max(label + 1, postings.length * 2));
+				if (postings[label] == null) postings[label] = new Postings();
+				postings[label].add(id);
+			}
+			nbAdded++;
+		}
+	}
+
+	/**
+	 * Pick the trees to open: new or modified trees, and indexed trees holding the query
+	 * leaf and at least one donor leaf. Indexed trees missing from the list are retired.
+	 * @param files tree files of the input directory
+	 * @param categories categories of leaves for the donor, optional and ignored taxa
+	 * @return the trees to open, in the order given
+	 */
+	public synchronized List<Path> select(List<Path> files, Categories categories) {
+		/* trees holding a donor leaf */
+		BitSet donors = new BitSet();
+		for (int label=0; label<postings.length; label++) {
+			if (postings[label] == null) continue;
+			if ((categories.get(Labels.label(label)) & Categories.DONOR) != 0) postings[label].decode(donors, null);
+		}
+		HashMap<String,Integer> listed = new HashMap<String,Integer>();
+		ArrayList<Path> selected = new ArrayList<Path>();
+		for (Path file : files) {
+			listed.put(file.getFileName().toString(), 0);
+			int id = current(file);
+			if (id == -1) {
+				selected.add(file);
+				continue;
+			}
+			if (!donors.get(id)) continue;
+			int query = Labels.find(Task.getQuery(file.toString()));
+			if (query == -1 || query >= postings.length || postings[query] == null) continue;
+			BitSet trees = new BitSet();
+			postings[query].decode(trees, null);
+			if (trees.get(id)) selected.add(file);
+		}
+		ids.keySet().removeIf(name -> {
+			if (listed.containsKey(name)) return false;
+			retired.set(ids.get(name));
+			return true;
+		});
+		return selected;
+	}
+
+	/**
+	 * Write the index, dropping retired trees first if they outnumber the live ones
+	 * @throws IOException if the index cannot be written
+	 */
+	public synchronized void save() throws IOException {
+		if (retired.cardinality() > names.size() / 2) compact();
+		Labels.save(Paths.get(prefix + ".labels.txt"));
+		Path bin = Paths.get(prefix + ".postings.bin");
+		Path tmp = Paths.get(prefix + ".postings.bin.tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(names.size());
+			for (int i=0; i<names.size(); i++) {
+				out.writeUTF(names.get(i));
+				out.writeLong(sizes[i]);
+				out.writeLong(times[i]);
+				out.writeBoolean(!retired.get(i));
+			}
+			int nbLabels = 0;
+			for (Postings p : postings) if (p != null) nbLabels++;
+			out.writeInt(nbLabels);
+			for (int label=0; label<postings.length; label++) {
+				Postings p = postings[label];
+				if (p == null) continue;
+				out.writeInt(label);
+				out.writeInt(p.count);
+				out.writeInt(p.last);
+				out.writeInt(p.length);
+				out.write(p.bytes, 0, p.length);
+			}
+		}
+		Files.move(tmp, bin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/* renumber live trees and re-encode postings without retired trees */
+	private void compact() {
+		int[] map = new int[names.size()];
+		ArrayList<String> liveNames = new ArrayList<String>();
+		for (int i=0; i<map.length; i++) {
+			if (retired.get(i)) {
+				map[i] = -1;
+			} else {
+				map[i] = liveNames.size();
+				sizes[liveNames.size()] = sizes[i];
+				times[liveNames.size()] = times[i];
+				liveNames.add(names.get(i));
+			}
+		}
+		for (int label=0; label<postings.length; label++) {
+			if (postings[label] == null) continue;
+			BitSet trees = new BitSet();
+			postings[label].decode(trees, map);
+			postings[label] = null;
+			if (trees.isEmpty()) continue;
+			Postings p = new Postings();
+			for (int id = trees.nextSetBit(0); id >= 0; id = trees.nextSetBit(id + 1)) p.add(id);
+			postings[label] = p;
+		}
+		names = liveNames;
+		retired.clear();
+		ids.clear();
+		for (int i=0; i<names.size(); i++) ids.put(names.get(i), i);
+	}
+
+	/** return the number of live trees in the index */
+	public synchronized int getNbTrees() {
+		return names.size() - retired.cardinality();
+	}
+	/** return the number of trees indexed in this run */
+	public synchronized int getNbAdded() {
+		return nbAdded;
+	}
+}
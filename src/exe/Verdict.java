@@ -0,0 +1,161 @@
+package exe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class Verdict holds the outcome of screening a single tree: the number of
+ * nodes supporting query-donor monophyly, the fate of the tree and the ingroup
+ * details of all supporting nodes.
+ */
+public class Verdict {
+	private String query;
+	private int strong;
+	private int weak;
+	private int fate;
+	private int leaves;
+	private int splits;
+	private long parseNanos;
+	private long evaluateNanos;
+	private List<String> supportDonorsAndOptionals = new ArrayList<String>();
+
+	/**
+	 * Constructor
+	 * @param query a string for the query sequence
+	 * @param strong number of nodes strongly supporting query-donor monophyly
+	 * @param weak number of nodes weakly supporting query-donor monophyly
+	 * @param fate an integer coding the fate of the tree (see Screen.fate)
+	 * @param supportDonorsAndOptionals ingroup details, one line for each supporting node
+	 * @param leaves number of leaves in the tree
+	 */
+	public Verdict(String query, int strong, int weak, int fate, List<String> supportDonorsAndOptionals, int leaves) {
+		this.query = query;
+		this.strong = strong;
+		this.weak = weak;
+		this.fate = fate;
+		this.supportDonorsAndOptionals = supportDonorsAndOptionals;
+		this.leaves = leaves;
+	}
+
+	/**
+	 * Record what it took to reach the verdict
+	 * @param splits number of bi-partitions examined
+	 * @param parseNanos time spent parsing the tree (in nanoseconds)
+	 * @param evaluateNanos time spent enumerating and classifying bi-partitions (in nanoseconds)
+	 */
+	public void setCost(int splits, long parseNanos, long evaluateNanos) {
+		this.splits = splits;
+		this.parseNanos = parseNanos;
+		this.evaluateNanos = evaluateNanos;
+	}
+
+	/** return true if the tree meets user criteria */
+	public boolean isHit() {
+		return fate > 1;
+	}
+
+	/**
+	 * Make coded node information
+	 * @return a string "query \t strong nodes \t weak nodes \t all nodes"
+	 */
+	public String getCode() {
+		return query +"\t"+ strong +"\t"+ weak + "\t" + (strong + weak);
+	}
+
+	/**
+	 * Make a JSON object (one line) of the verdict
+	 * @param withIngroup whether or not to include ingroup details
+	 * @return a string
+	 */
+	public String toJson(boolean withIngroup) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"query\":").append(quote(query))
+		  .append(",\"strong\":").append(strong)
+		  .append(",\"weak\":").append(weak)
+		  .append(",\"total\":").append(strong + weak);
+		if (withIngroup) {
+			sb.append(",\"ingroup\":[");
+			for (int i=0; i<supportDonorsAndOptionals.size(); i++) {
+				/* a record is "support \t donors \t optionals" with sequences joined by ',' */
+				String[] fields = supportDonorsAndOptionals.get(i).split("\t", -1);
+				if (i > 0) sb.append(',');
+				sb.append("{\"support\":").append(number(fields[0]))
+				  .append(",\"donors\":").append(quoteList(fields[1]))
+				  .append(",\"optionals\":").append(quoteList(fields.length > 2 ? fields[2] : ""))
+				  .append('}');
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	/* make a JSON number from a support value; null if it is not finite, a string if it is not a number (e.g. "95/100") */
+	private static String number(String support) {
+		try {
+			double value = Double.parseDouble(support);
+			return Double.isFinite(value) ? Double.toString(value) : "null";
+		} catch (NumberFormatException e) {
+			return quote(support);
+		}
+	}
+
+	/* make a JSON array from sequences joined by ',' */
+	private static String quoteList(String joined) {
+		StringBuilder sb = new StringBuilder("[");
+		if (!joined.isEmpty()) {
+			String[] seqs = joined.split(",");
+			for (int i=0; i<seqs.length; i++) {
+				if (i > 0) sb.append(',');
+				sb.append(quote(seqs[i]));
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/* make a JSON string */
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/*
+	 * getters
+	 */
+	public String getQuery() {
+		return query;
+	}
+	public int getStrongNodes() {
+		return strong;
+	}
+	public int getWeakNodes() {
+		return weak;
+	}
+	public int getFate() {
+		return fate;
+	}
+	public int getLeafCount() {
+		return leaves;
+	}
+	public int getSplitCount() {
+		return splits;
+	}
+	public long getParseNanos() {
+		return parseNanos;
+	}
+	public long getEvaluateNanos() {
+		return evaluateNanos;
+	}
+	public List<String> getSupportDonorsAndOptionals() {
+		return supportDonorsAndOptionals;
+	}
+}
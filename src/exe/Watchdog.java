@@ -0,0 +1,182 @@
+package exe;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class Watchdog enforces per-tree budgets so that a single pathological
+ * tree cannot hold a worker hostage:
+ *   - a leaf budget, checked before a tree is parsed
+ *   - a wall-time budget for parsing and evaluating a tree; a daemon thread
+ *     interrupts workers that run over it, and the loops of tree processing
+ *     give up when interrupted (see newicktree.Budget)
+ * Trees over budget, and trees that fail with an error, are written with the
+ * reason to a report ("prefix.skipped.txt") and the worker moves on.
+ */
+public class Watchdog {
+	/* longest interval (in milliseconds) between two rounds of the watchdog */
+	private static final long ROUND = 1000;
+
+	private long timeout;
+	private int maxLeaves;
+	private String report;
+	private FileWriter writer = null;
+	private int nbSkipped = 0;
+	private ConcurrentHashMap<Thread,Ticket> active = new ConcurrentHashMap<Thread,Ticket>();
+	/* whether the worker skipped a tree since it last asked (see takeSkipped) */
+	private ThreadLocal<Boolean> skipped = ThreadLocal.withInitial(() -> false);
+
+	/**
+	 * Constructor
+	 * @param timeout wall-time budget of a tree in seconds (0 for no limit)
+	 * @param maxLeaves leaf budget of a tree (0 for no limit)
+	 * @param report a string for the report of skipped trees; empty to print them to the console
+	 * @param append whether or not to keep an existing report (e.g., when resuming)
+	 */
+	public Watchdog(double timeout, int maxLeaves, String report, boolean append) {
+		this.timeout = (long) (timeout * 1000);
+		this.maxLeaves = maxLeaves;
+		this.report = report;
+		if (!report.isEmpty() && !append) {
+			try {
+				Files.deleteIfExists(Paths.get(report));
+			} catch (IOException e) {
+				System.out.println("#-> errorous removing file: " + report);
+			}
+		}
+		if (this.timeout > 0) {
+			Thread thread = new Thread(this::watch, "watchdog");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * A tree being processed by a worker
+	 */
+	public static class Ticket {
+		private Thread thread;
+		private long start;
+		private boolean open = true;
+		private boolean expired = false;
+
+		private Ticket(Thread thread) {
+			this.thread = thread;
+			this.start = System.currentTimeMillis();
+		}
+
+		/** return true if the tree ran over its time budget */
+		public synchronized boolean isExpired() {
+			return expired;
+		}
+	}
+
+	/** return true if a tree of the given number of leaves is within budget */
+	public boolean admits(int leaves) {
+		return maxLeaves <= 0 || leaves <= maxLeaves;
+	}
+
+	/** return the reason for rejecting a tree of the given number of leaves */
+	public String tooBig(int leaves) {
+		return "leaf budget exceeded (" + leaves + " > " + maxLeaves + " leaves)";
+	}
+
+	/** return the reason for cancelling a tree over its time budget */
+	public String tooSlow() {
+		return "time budget exceeded (" + timeout / 1000.0 + " s)";
+	}
+
+	/**
+	 * Start the time budget of a tree processed by the current thread
+	 * @return a Ticket object to be handed back to end()
+	 */
+	public Ticket begin() {
+		Ticket ticket = new Ticket(Thread.currentThread());
+		active.put(ticket.thread, ticket);
+		return ticket;
+	}
+
+	/**
+	 * Stop the time budget of a tree. An interrupt that arrived meanwhile is
+	 * cleared, so it does not leak to the next tree or to file output.
+	 * @param ticket the Ticket object returned by begin()
+	 */
+	public void end(Ticket ticket) {
+		synchronized (ticket) {
+			ticket.open = false;
+			active.remove(ticket.thread, ticket);
+			Thread.interrupted();
+		}
+	}
+
+	/* interrupt workers whose tree ran over budget */
+	private void watch() {
+		long round = Math.max(10, Math.min(ROUND, timeout / 10));
+		while (true) {
+			try {
+				Thread.sleep(round);
+			} catch (InterruptedException e) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			for (Ticket ticket : active.values()) {
+				synchronized (ticket) {
+					if (ticket.open && !ticket.expired && now - ticket.start > timeout) {
+						ticket.expired = true;
+						ticket.thread.interrupt();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Report a skipped tree
+	 * @param name a string for the tree file (or query)
+	 * @param reason a string for the reason
+	 */
+	public synchronized void skip(String name, String reason) {
+		nbSkipped++;
+		skipped.set(true);
+		if (report.isEmpty()) {
+			System.out.println("#-> skipped " + name + ": " + reason);
+			return;
+		}
+		try {
+			if (writer == null) writer = new FileWriter(report, true);
+			writer.write(name + "\t" + reason + "\n");
+			writer.flush();
+		} catch (IOException e) {
+			System.out.println("#-> errorous writting to file: " + report);
+		}
+	}
+
+	/**
+	 * Return true if the calling worker skipped a tree since it last called this method,
+	 * so that a tree that failed or was skipped is told apart from a tree that did not qualify
+	 */
+	public boolean takeSkipped() {
+		boolean s = skipped.get();
+		skipped.set(false);
+		return s;
+	}
+
+	/** return the number of skipped trees */
+	public synchronized int getNbSkipped() {
+		return nbSkipped;
+	}
+
+	/** close the report */
+	public synchronized void close() {
+		if (writer == null) return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			System.out.println("#-> errorous closing file: " + report);
+		}
+		writer = null;
+	}
+}
@@ -0,0 +1,286 @@
+package exe;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import metrics.FlushEvent;
+
+/**
+ * The class Watcher keeps an eye on the input directory after the initial scan.
+ * Tree files that are created or modified are screened once they are complete,
+ * i.e., they have not changed for a quiet period and their newick string is
+ * terminated by ';'. Qualifying trees are appended to the candidates file right away.
+ * A modified tree that was already reported is appended again only if its row changed;
+ * when watching stops, the candidates file is rewritten so that every tree keeps just
+ * its latest row and trees that no longer qualify are dropped.
+ */
+public class Watcher {
+	/* time (in milliseconds) a file has to stay unchanged before it is screened */
+	private static final long QUIET = 2000;
+	/* time (in milliseconds) after which an unterminated tree is screened anyway */
+	private static final long GIVEUP = 60000;
+	/* interval (in milliseconds) between checks of pending files */
+	private static final long POLL = 500;
+
+	private Path dir;
+	private Task screener;
+	private String outHGT;
+	private Journal journal;
+	private ExecutorService pool;
+	private FileWriter hgtWriter;
+	private WatchService service;
+	private volatile boolean running = true;
+	private int nbHits = 0;
+
+	/* files already screened -> their last-modified time when screened */
+	private HashMap<Path,Long> screened = new HashMap<Path,Long>();
+	/* files waiting to be complete -> {time of last change, size at last change} */
+	private HashMap<Path,long[]> pending = new HashMap<Path,long[]>();
+	/* query -> its row in the candidates file ("" if it no longer qualifies) */
+	private HashMap<String,String> reported = new HashMap<String,String>();
+	/* whether the candidates file holds rows that were superseded since */
+	private boolean stale = false;
+
+	/**
+	 * Constructor
+	 * @param dir the input directory
+	 * @param screener a Task object whose criteria are used to screen trees
+	 * @param outHGT a string for the candidates file to append to
+	 * @param journal a Journal object recording finished trees (null if not journaled)
+	 * @param thread number of threads used to screen trees
+	 * @param done trees screened before watching starts
+	 * @param hits coded node information of the qualifying trees among them
+	 */
+	public Watcher(Path dir, Task screener, String outHGT, Journal journal, int thread, List<Path> done, List<String> hits) {
+		this.dir = dir;
+		this.screener = screener;
+		this.outHGT = outHGT;
+		this.journal = journal;
+		this.pool = Executors.newFixedThreadPool(thread);
+		for (Path p : done) screened.put(p.toAbsolutePath(), lastModified(p));
+		for (String code : hits) reported.put(queryOf(code), code);
+	}
+
+	/**
+	 * Watch the input directory until stop() is called (e.g., by a shutdown hook on Ctrl-C)
+	 * @throws IOException
+	 */
+	public void watch() throws IOException {
+		hgtWriter = new FileWriter(outHGT, true);
+		service = FileSystems.getDefault().newWatchService();
+		dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		/* pick up trees that landed between the initial scan and the registration */
+		rescan();
+		System.out.println("watching " + dir + " for new trees (Ctrl-C to stop)");
+
+		while (running) {
+			WatchKey key;
+			try {
+				key = service.poll(POLL, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				break;
+			}
+			if (key != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						rescan();
+						continue;
+					}
+					Path file = dir.resolve((Path) event.context()).toAbsolutePath();
+					if (NestedIn.isTreeFile(file)) touch(file);
+				}
+				key.reset();
+			}
+			submitCompleted();
+		}
+	}
+
+	/** note a change of a tree file */
+	private void touch(Path file) {
+		pending.put(file, new long[] {System.currentTimeMillis(), size(file)});
+	}
+
+	/** compare the directory against screened files, e.g., after lost watch events */
+	private void rescan() throws IOException {
+		List<Path> files = Files.walk(dir,1)
+				.skip(1)
+				.filter(x->NestedIn.isTreeFile(x))
+				.filter(x->Files.isRegularFile(x))
+				.map(x->x.toAbsolutePath())
+				.collect(Collectors.toList());
+		for (Path file : files) {
+			Long seen = screened.get(file);
+			if (seen == null || seen.longValue() != lastModified(file)) touch(file);
+		}
+	}
+
+	/** hand over pending files that are complete to the thread pool */
+	private void submitCompleted() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path,long[]>> it = pending.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path,long[]> e = it.next();
+			Path file = e.getKey();
+			long[] change = e.getValue();
+			if (!Files.isRegularFile(file)) {
+				it.remove();
+				continue;
+			}
+			long size = size(file);
+			if (size != change[1]) {
+				/* still being written */
+				change[0] = now;
+				change[1] = size;
+				continue;
+			}
+			if (now - change[0] < QUIET) continue;
+			if (!isTerminated(file) && now - change[0] < GIVEUP) continue;
+
+			it.remove();
+			long modified = lastModified(file);
+			Long seen = screened.get(file);
+			if (seen != null && seen.longValue() == modified) continue;
+			screened.put(file, modified);
+			pool.submit(() -> screen(file));
+		}
+	}
+
+	/**
+	 * Screen a single tree and append its coded node information if it qualifies
+	 * @param file path to the tree file
+	 */
+	private void screen(Path file) {
+		String code = screener.Atree(file.toString());
+		boolean failed = screener.takeSkipped();
+		if (journal != null) {
+			List<String> lines = new ArrayList<String>();
+			lines.add(Journal.entry(file, code, failed));
+			journal.append(lines);
+		}
+		synchronized (this) {
+			/* a tree screened again is reported only if its row changed */
+			String previous = reported.put(Task.getQuery(file.toString()), code);
+			if (previous != null && !previous.isEmpty() && !previous.equals(code)) stale = true;
+			if (code.isEmpty() || code.equals(previous)) return;
+			FlushEvent event = new FlushEvent();
+			event.begin();
+			try {
+				hgtWriter.write(code + "\n");
+				hgtWriter.flush();
+			} catch (IOException e) {
+				System.out.println("#-> errorous writting to file: " + outHGT);
+			}
+			if (event.shouldCommit()) {
+				event.target = outHGT;
+				event.records = 1;
+				event.bytes = code.length() + 1;
+				event.commit();
+			}
+			nbHits++;
+			System.out.println("hit #" + nbHits + ": " + file.getFileName());
+		}
+	}
+
+	/** stop watching, finish trees in progress and close outputs */
+	public void stop() {
+		if (!running) return;
+		running = false;
+		try {
+			service.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			// closing anyway
+		}
+		synchronized (this) {
+			try {
+				hgtWriter.close();
+			} catch (IOException e) {
+				System.out.println("#-> errorous closing file: " + outHGT);
+			}
+			if (stale) compact();
+		}
+		if (journal != null) journal.close();
+	}
+	
+	/** rewrite the candidates file keeping, for every tree, only its latest row */
+	private void compact() {
+		Path path = Paths.get(outHGT);
+		List<String> rows = new ArrayList<String>();
+		HashSet<String> written = new HashSet<String>();
+		try {
+			List<String> lines = Files.readAllLines(path);
+			for (int i=0; i<lines.size(); i++) {
+				String line = lines.get(i);
+				String query = queryOf(line);
+				String latest = reported.get(query);
+				/* the header and rows of trees not screened while watching are kept as they are */
+				if (i == 0 || latest == null) {
+					rows.add(line);
+				} else if (!latest.isEmpty() && written.add(query)) {
+					rows.add(latest);
+				}
+			}
+			Files.write(path, rows);
+		} catch (IOException e) {
+			System.out.println("#-> errorous rewriting file: " + outHGT);
+		}
+	}
+	
+	/* the query of a row of coded node information (its first column) */
+	private static String queryOf(String code) {
+		int tab = code.indexOf('\t');
+		return tab == -1 ? code : code.substring(0, tab);
+	}
+
+	/** return true if the first line of the file is a newick string terminated by ';' */
+	private boolean isTerminated(Path file) {
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String line = reader.readLine();
+			return line != null && line.trim().endsWith(";");
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * The class Flight runs a bounded flight recording for the whole run using the
+ * JDK 'profile' settings plus the NestedIn events, and writes it to a file when stopped.
+ */
+public class Flight {
+	/* the recording keeps at most this much data (in bytes) and this much time */
+	private static final long MAX_SIZE = 256L * 1024 * 1024;
+	private static final Duration MAX_AGE = Duration.ofHours(6);
+
+	private static Recording recording = null;
+	private static String destination = "";
+
+	/**
+	 * Start a recording
+	 * @param file a string for the .jfr file written when the recording is stopped
+	 */
+	public static synchronized void start(String file) {
+		if (recording != null) return;
+		try {
+			recording = new Recording(Configuration.getConfiguration("profile"));
+			recording.setName("NestedIn");
+			recording.setToDisk(true);
+			recording.setMaxSize(MAX_SIZE);
+			recording.setMaxAge(MAX_AGE);
+			recording.enable(TreeEvent.class);
+			recording.enable(FlushEvent.class);
+			recording.setDestination(Paths.get(file));
+			recording.start();
+			destination = file;
+		} catch (IOException | ParseException e) {
+			System.out.println("#-> errorous starting flight recording: " + e.getMessage());
+			recording = null;
+		}
+	}
+
+	/** stop the recording and write it to its file */
+	public static synchronized void stop() {
+		if (recording == null) return;
+		try {
+			recording.stop();
+			System.out.println("flight recording written to: " + destination);
+		} catch (IllegalStateException e) {
+			System.out.println("#-> errorous stopping flight recording: " + e.getMessage());
+		}
+		recording.close();
+		recording = null;
+	}
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for writing a batch of records to an output file,
+ * e.g., the journal or the candidates file.
+ */
+@Name("nestedin.Flush")
+@Label("Output Flush")
+@Category("NestedIn")
+@Description("Batch of records written to an output file")
+public class FlushEvent extends jdk.jfr.Event {
+	@Label("Target")
+	public String target;
+
+	@Label("Records")
+	public int records;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes;
+}
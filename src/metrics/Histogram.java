@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two buckets of nanoseconds.
+ * Bucket i counts durations in [2^(i-1), 2^i) ns, so recording is a single
+ * leading-zero count plus an atomic increment.
+ */
+public class Histogram {
+	public static final int NB_BUCKETS = 65;
+
+	private AtomicLongArray buckets = new AtomicLongArray(NB_BUCKETS);
+	private LongAdder count = new LongAdder();
+	private LongAdder sum   = new LongAdder();
+	private LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * Record a duration
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(bucket(nanos));
+		count.increment();
+		sum.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/** return the bucket index of a duration */
+	public static int bucket(long nanos) {
+		return 64 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	/** return the (exclusive) upper bound of a bucket in nanoseconds */
+	public static double upperBound(int bucket) {
+		return Math.pow(2, bucket);
+	}
+
+	/**
+	 * Estimate a quantile as the upper bound of the bucket holding it
+	 * @param q a double between 0 and 1
+	 * @return duration in nanoseconds
+	 */
+	public double quantile(double q) {
+		long total = count.sum();
+		if (total == 0) return 0;
+		long rank = (long) Math.ceil(q * total);
+		long seen = 0;
+		for (int i=0; i<NB_BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return Math.min(upperBound(i), max.get());
+		}
+		return max.get();
+	}
+
+	/*
+	 * getters
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	public long getSum() {
+		return sum.sum();
+	}
+	public long getMax() {
+		return max.get();
+	}
+	public long getBucket(int i) {
+		return buckets.get(i);
+	}
+}
@@ -0,0 +1,250 @@
+package metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import newicktree.Labels;
+
+/**
+ * The class Metrics collects per-stage timings of a run and writes them out as a
+ * JSON report and a Prometheus text-format file. It is process-wide and disabled
+ * by default; while disabled every call returns immediately, so the
+ * instrumentation can stay in the hot paths.
+ */
+public class Metrics {
+	/** stages of screening a tree */
+	public enum Stage { READ, PARSE, SPLIT, CLASSIFY, OUTPUT }
+
+	/* number of slowest trees to keep */
+	private static final int NB_SLOWEST = 20;
+
+	private static volatile boolean enabled = false;
+	private static final Metrics INSTANCE = new Metrics();
+
+	private Histogram[] stages = new Histogram[Stage.values().length];
+	private ConcurrentHashMap<String,LongAdder> busy = new ConcurrentHashMap<String,LongAdder>();
+	private LongAdder trees = new LongAdder();
+	private LongAdder hits  = new LongAdder();
+	private long startTime = System.nanoTime();
+
+	/* slowest trees, fastest of them at the head; guarded by itself */
+	private PriorityQueue<SlowTree> slowest = new PriorityQueue<SlowTree>(Comparator.comparingLong(x->x.nanos));
+	/* duration of the fastest kept tree, read without locking to skip most trees */
+	private volatile long slowestFloor = 0;
+
+	private Metrics() {
+		for (int i=0; i<stages.length; i++) stages[i] = new Histogram();
+	}
+
+	/** switch on collection and restart the run clock */
+	public static void enable() {
+		INSTANCE.startTime = System.nanoTime();
+		enabled = true;
+	}
+
+	/** return true if metrics are being collected */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/** return the process-wide metrics */
+	public static Metrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start timing a stage
+	 * @return a time stamp to be handed to stop(); 0 if disabled
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Finish timing a stage
+	 * @param stage the stage being timed
+	 * @param start time stamp returned by start()
+	 * @return a time stamp for timing the next stage; 0 if disabled
+	 */
+	public static long stop(Stage stage, long start) {
+		if (!enabled) return 0;
+		long now = System.nanoTime();
+		INSTANCE.stages[stage.ordinal()].record(now - start);
+		return now;
+	}
+
+	/**
+	 * Record the duration of a stage timed elsewhere
+	 * @param stage the stage
+	 * @param nanos duration in nanoseconds
+	 */
+	public static void record(Stage stage, long nanos) {
+		if (enabled) INSTANCE.stages[stage.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Record a finished tree: its total time counts towards the busy time of the
+	 * current thread and towards the slowest trees
+	 * @param file a string for the tree file (or query)
+	 * @param leaves number of leaves in the tree
+	 * @param start time stamp returned by start() when the tree was picked up
+	 * @param hit whether or not the tree meets user criteria
+	 */
+	public static void treeDone(String file, int leaves, long start, boolean hit) {
+		if (!enabled) return;
+		long nanos = System.nanoTime() - start;
+		Metrics m = INSTANCE;
+		m.trees.increment();
+		if (hit) m.hits.increment();
+		m.busy.computeIfAbsent(Thread.currentThread().getName(), x->new LongAdder()).add(nanos);
+		if (nanos <= m.slowestFloor) return;
+		synchronized (m.slowest) {
+			m.slowest.add(new SlowTree(file, leaves, nanos));
+			if (m.slowest.size() > NB_SLOWEST) m.slowest.poll();
+			if (m.slowest.size() == NB_SLOWEST) m.slowestFloor = m.slowest.peek().nanos;
+		}
+	}
+
+	/**
+	 * Write the JSON report (prefix.metrics.json) and the Prometheus file (prefix.metrics.prom)
+	 * @param prefix a string for the output files
+	 * @param version a string for the program version
+	 * @param threads number of worker threads
+	 */
+	public void write(String prefix, String version, int threads) {
+		double wall = (System.nanoTime() - startTime) / 1e9;
+		List<SlowTree> slow = getSlowest();
+		Map<String,Long> threadBusy = new TreeMap<String,Long>();
+		busy.forEach((k,v)->threadBusy.put(k, v.sum()));
+
+		String json = prefix + ".metrics.json";
+		try (FileWriter writer = new FileWriter(json)) {
+			StringBuilder sb = new StringBuilder("{\n");
+			sb.append("  \"version\": \"").append(version).append("\",\n");
+			sb.append("  \"threads\": ").append(threads).append(",\n");
+			sb.append("  \"wall_seconds\": ").append(fmt(wall)).append(",\n");
+			sb.append("  \"trees\": ").append(trees.sum()).append(",\n");
+			sb.append("  \"hits\": ").append(hits.sum()).append(",\n");
+			sb.append("  \"distinct_labels\": ").append(Labels.size()).append(",\n");
+			sb.append("  \"stages\": {");
+			for (Stage s : Stage.values()) {
+				Histogram h = stages[s.ordinal()];
+				sb.append(s.ordinal() == 0 ? "\n" : ",\n");
+				sb.append("    \"").append(s.name().toLowerCase()).append("\": {")
+				  .append("\"count\": ").append(h.getCount())
+				  .append(", \"sum_seconds\": ").append(fmt(h.getSum() / 1e9))
+				  .append(", \"mean_ms\": ").append(fmt(h.getCount() == 0 ? 0 : h.getSum() / 1e6 / h.getCount()))
+				  .append(", \"p50_ms\": ").append(fmt(h.quantile(0.5) / 1e6))
+				  .append(", \"p90_ms\": ").append(fmt(h.quantile(0.9) / 1e6))
+				  .append(", \"p99_ms\": ").append(fmt(h.quantile(0.99) / 1e6))
+				  .append(", \"max_ms\": ").append(fmt(h.getMax() / 1e6)).append('}');
+			}
+			sb.append("\n  },\n  \"thread_utilization\": {");
+			int i = 0;
+			for (Map.Entry<String,Long> e : threadBusy.entrySet()) {
+				sb.append(i++ == 0 ? "\n" : ",\n");
+				sb.append("    \"").append(e.getKey()).append("\": {\"busy_seconds\": ").append(fmt(e.getValue() / 1e9))
+				  .append(", \"utilization\": ").append(fmt(wall > 0 ? e.getValue() / 1e9 / wall : 0)).append('}');
+			}
+			sb.append("\n  },\n  \"slowest_trees\": [");
+			for (int j=0; j<slow.size(); j++) {
+				SlowTree t = slow.get(j);
+				sb.append(j == 0 ? "\n" : ",\n");
+				sb.append("    {\"file\": \"").append(t.file.replace("\\", "\\\\").replace("\"", "\\\""))
+				  .append("\", \"leaves\": ").append(t.leaves)
+				  .append(", \"seconds\": ").append(fmt(t.nanos / 1e9)).append('}');
+			}
+			sb.append("\n  ]\n}\n");
+			writer.write(sb.toString());
+		} catch (IOException e) {
+			System.out.println("#-> errorous writing metrics to: " + json);
+		}
+
+		String prom = prefix + ".metrics.prom";
+		try (FileWriter writer = new FileWriter(prom)) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("# HELP nestedin_stage_seconds Time spent per tree in each stage.\n");
+			sb.append("# TYPE nestedin_stage_seconds histogram\n");
+			for (Stage s : Stage.values()) {
+				Histogram h = stages[s.ordinal()];
+				String label = "stage=\"" + s.name().toLowerCase() + "\"";
+				long cumulative = 0;
+				for (int b=0; b<Histogram.NB_BUCKETS; b++) {
+					cumulative += h.getBucket(b);
+					if (h.getBucket(b) == 0) continue;
+					sb.append("nestedin_stage_seconds_bucket{").append(label).append(",le=\"")
+					  .append(fmt(Histogram.upperBound(b) / 1e9)).append("\"} ").append(cumulative).append('\n');
+				}
+				sb.append("nestedin_stage_seconds_bucket{").append(label).append(",le=\"+Inf\"} ").append(h.getCount()).append('\n');
+				sb.append("nestedin_stage_seconds_sum{").append(label).append("} ").append(fmt(h.getSum() / 1e9)).append('\n');
+				sb.append("nestedin_stage_seconds_count{").append(label).append("} ").append(h.getCount()).append('\n');
+			}
+			sb.append("# HELP nestedin_thread_busy_seconds Time each worker thread spent on trees.\n");
+			sb.append("# TYPE nestedin_thread_busy_seconds gauge\n");
+			for (Map.Entry<String,Long> e : threadBusy.entrySet()) {
+				sb.append("nestedin_thread_busy_seconds{thread=\"").append(e.getKey()).append("\"} ")
+				  .append(fmt(e.getValue() / 1e9)).append('\n');
+			}
+			sb.append("# HELP nestedin_slow_tree_seconds Time spent on the slowest trees.\n");
+			sb.append("# TYPE nestedin_slow_tree_seconds gauge\n");
+			for (SlowTree t : slow) {
+				sb.append("nestedin_slow_tree_seconds{file=\"").append(t.file.replace("\\", "\\\\").replace("\"", "\\\""))
+				  .append("\",leaves=\"").append(t.leaves).append("\"} ").append(fmt(t.nanos / 1e9)).append('\n');
+			}
+			sb.append("# TYPE nestedin_trees_total counter\n");
+			sb.append("nestedin_trees_total ").append(trees.sum()).append('\n');
+			sb.append("# TYPE nestedin_hits_total counter\n");
+			sb.append("nestedin_hits_total ").append(hits.sum()).append('\n');
+			sb.append("# TYPE nestedin_distinct_labels gauge\n");
+			sb.append("nestedin_distinct_labels ").append(Labels.size()).append('\n');
+			sb.append("# TYPE nestedin_wall_seconds gauge\n");
+			sb.append("nestedin_wall_seconds ").append(fmt(wall)).append('\n');
+			sb.append("# TYPE nestedin_threads gauge\n");
+			sb.append("nestedin_threads ").append(threads).append('\n');
+			writer.write(sb.toString());
+		} catch (IOException e) {
+			System.out.println("#-> errorous writing metrics to: " + prom);
+		}
+	}
+
+	/** return the slowest trees, slowest first */
+	public List<SlowTree> getSlowest() {
+		List<SlowTree> list;
+		synchronized (slowest) {
+			list = new ArrayList<SlowTree>(slowest);
+		}
+		list.sort(Comparator.comparingLong((SlowTree x)->x.nanos).reversed());
+		return list;
+	}
+
+	/** return a histogram of a stage */
+	public Histogram getStage(Stage stage) {
+		return stages[stage.ordinal()];
+	}
+
+	private static String fmt(double d) {
+		return String.format(Locale.ROOT, "%.6g", d);
+	}
+
+	/** a tree with its size and the time spent on it */
+	public static class SlowTree {
+		public final String file;
+		public final int leaves;
+		public final long nanos;
+
+		public SlowTree(String file, int leaves, long nanos) {
+			this.file = file;
+			this.leaves = leaves;
+			this.nanos = nanos;
+		}
+	}
+}
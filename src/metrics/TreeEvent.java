@@ -0,0 +1,56 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for screening a single tree. The event duration covers
+ * reading, evaluating and (for hits) writing the tree. Every tree picked up gets
+ * an event, including trees that are unreadable, skipped or fail; fields not
+ * known by then are left at zero.
+ */
+@Name("nestedin.Tree")
+@Label("Tree Screened")
+@Category("NestedIn")
+@Description("Screening of a single tree")
+public class TreeEvent extends jdk.jfr.Event {
+	/* outcomes of screening a tree */
+	public static final String HIT        = "hit";
+	public static final String MISS       = "miss";
+	public static final String UNREADABLE = "unreadable";
+	public static final String SKIPPED    = "skipped";
+	public static final String ERROR      = "error";
+
+	@Label("File")
+	public String file;
+
+	@Label("Leaves")
+	public int leaves;
+
+	@Label("Splits")
+	@Description("Number of bi-partitions examined")
+	public int splits;
+
+	@Label("Parse Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long parseDuration;
+
+	@Label("Evaluate Duration")
+	@Description("Split enumeration and classification")
+	@Timespan(Timespan.NANOSECONDS)
+	public long evaluateDuration;
+
+	@Label("Hit")
+	public boolean hit;
+
+	@Label("Outcome")
+	@Description("hit, miss, unreadable, skipped (over a budget) or error")
+	public String outcome;
+
+	@Label("Reason")
+	@Description("Why a tree was skipped or failed")
+	public String reason;
+}
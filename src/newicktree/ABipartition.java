@@ -1,7 +1,6 @@
 package newicktree;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 //import java.util.function.Predicate;
 
@@ -28,9 +27,20 @@ public class ABipartition {
 	private String ingroup = new String();
 	private String outgroup = new String();
 
+	/* in-group read from the leaves of a tree instead of a string (see LeafTable) */
+	private LeafTable table = null;
+	private int node;
+	private boolean inside;
+
 	/* number of different donors */
 	private int nb_donor;
-	//private int nb_optional;
+	private int nb_optional;
+	private int nb_ignored;
+	private int nb_irrelevant;
+	private int ingroupSize;
+	private int outgroupSize;
+	/* taxa of a pattern found in in-group, and only() lists of a pattern it goes beyond (see TreePattern) */
+	private long[] patternMasks = new long[2];
 	
 	/* Lists holding donor sequences, optional sequences and irrelevant sequences */
 	private ArrayList<String> irrelevant= new ArrayList<String>();
@@ -46,6 +56,36 @@ public class ABipartition {
 	public ABipartition(String bipartition) { 
 		this.bipartition = bipartition;
 	}
+
+	/**
+	 * Constructor
+	 * The bi-partition cut by interior node i of a tree, already checked against the
+	 * query and taxa of the table; sequences are only listed when asked for.
+	 * @param table a LeafTable object
+	 * @param i     index of an interior node (see Splits)
+	 */
+	public ABipartition(LeafTable table, int i) {
+		this.table = table;
+		this.node = i;
+		if (!table.hasQuery()) {
+			OTHERSCENARIO = -2;
+			donorSeqs = new ArrayList<String>();
+			optionSeqs = new ArrayList<String>();
+			return;
+		}
+		inside = table.isInside(i);
+		nb_donor = table.count(LeafTable.DONOR, i, inside);
+		nb_optional = table.count(LeafTable.OPTIONAL, i, inside);
+		nb_ignored = table.count(LeafTable.IGNORED, i, inside);
+		nb_irrelevant = table.count(LeafTable.OTHER, i, inside);
+		ingroupSize = table.size(i, inside);
+		outgroupSize = table.getLeafCount() - ingroupSize;
+		patternMasks[0] = table.mask(i, inside, 0);
+		patternMasks[1] = table.mask(i, inside, 1);
+		donorSeqs = null;
+		optionSeqs = null;
+		irrelevant = null;
+	}
 	
 	/**
 	 * Return status of bipartition
@@ -55,10 +95,10 @@ public class ABipartition {
 		if (OTHERSCENARIO != 0) {
 			return OTHERSCENARIO;
 		}else if ( nb_donor >= MINIMAL_DONOR_NB) {
-			if (irrelevant.isEmpty()) {
+			if (getNbIrrelevant() == 0) {
 				/* If no irrelevant taxon presents, monophyly is assumed */
 				return MONOPHYLY;
-			}else if (irrelevant.size()<3){
+			}else if (getNbIrrelevant()<3){
 				/* If <3 sequences from irrelevant taxa presents, this bipartition is adjustable 
 				 * This is a special type of non-monophyly. The irrelevant sequences might be due 
 				 * to rare contamination 	
@@ -81,28 +121,70 @@ public class ABipartition {
 	 */
 	public int getOutgroupStatus(int cutoff){
 		int status = -100;
-		if (outgroup.isEmpty()) return status;
+		int size = getOutgroupSize();
+		if (size == 0) return status;
 
-		String[] leaves = outgroup.split(",");
-		if (leaves.length >= cutoff) status = 0;		
+		if (size >= cutoff) status = 0;		
 		return status;
 	}
 
 	/** return a list holding donor sequences */
 	public List<String> getDonorSeqs(){
+		if (donorSeqs == null) donorSeqs = table.list(LeafTable.DONOR, node, inside);
 		return donorSeqs;
 	}
 	
 	/** return a list holding optional sequences */
 	public List<String> getOptionalSeqs(){
+		if (optionSeqs == null) optionSeqs = table.list(LeafTable.OPTIONAL, node, inside);
 		return optionSeqs;
 	}
 	
 	/** return a lists holding irrelevant sequences if adjustable nonmonophyly*/
 	public List<String> getMinorContamination(){
+		if (irrelevant == null) irrelevant = table.list(LeafTable.OTHER, node, inside);
 		return irrelevant;
 	}
 	
+	/** return the donor-group of the in-group (see DonorSet) */
+	public DonorSet getDonorSet(){
+		if (table != null && table.hasQuery()) return table.donorSet(node, inside);
+		return DonorSet.of(getDonorSeqs());
+	}
+	
+	/*
+	 * in-group details used by patterns (see TreePattern)
+	 */
+	public int getNbDonor(){
+		return table == null ? donorSeqs.size() : nb_donor;
+	}
+	public int getNbOptional(){
+		return table == null ? optionSeqs.size() : nb_optional;
+	}
+	public int getNbIrrelevant(){
+		return table == null ? irrelevant.size() : nb_irrelevant;
+	}
+	public int getNbIgnored(){
+		return nb_ignored;
+	}
+	// number of in-group sequences including the query; 0 if the query is not found
+	public int getIngroupSize(){
+		return ingroupSize;
+	}
+	public int getOutgroupSize(){
+		if (table != null) return outgroupSize;
+		if (outgroup.isEmpty()) return 0;
+		int size = 1;
+		for (int i=0; i<outgroup.length(); i++) if (outgroup.charAt(i) == ',') size++;
+		return size;
+	}
+	public long getTaxonMask(){
+		return patternMasks[0];
+	}
+	public long getOutsideMask(){
+		return patternMasks[1];
+	}
+	
 	/**
 	 * Examine all in-group sequences with respect to donor, optional and irrelevant taxa
 	 * update class variables: donorSeqs, optionSeqs, and irrelevant 
@@ -112,8 +194,19 @@ public class ABipartition {
 	 * @param ingored   Name(s) of taxa that to be ignored. Multiple taxa is joined with comma ","
 	 */
 	public void checkIngroup(String query, String donor, String optionals, String ignored){
+		checkIngroup(query, donor, optionals, ignored, null);
+	}
+	
+	/**
+	 * Same as above, also gathering the taxa of a pattern found in in-group
+	 * @param pattern a TreePattern object (or null)
+	 */
+	public void checkIngroup(String query, String donor, String optionals, String ignored, TreePattern pattern){
 		//System.out.println("#ABipartition l62 checkIngroup: " + optionals + "\t" + ignored);
 		nb_donor = 0;
+		nb_ignored = 0;
+		patternMasks[0] = 0;
+		patternMasks[1] = 0;
 		//nb_optional = 0;
 		setInAndOutGroup(query);
 		//System.out.println("#0");
@@ -121,26 +214,27 @@ public class ABipartition {
 			OTHERSCENARIO = -2;
 		}else {
 			String[] leaves = ingroup.split(", ");
+			ingroupSize = leaves.length;
+			/* categories of each label are matched once per run and then looked up */
+			Categories categories = Categories.of(donor, optionals, ignored);
 			//irrelevant= new ArrayList<String>();
 			for (String l : leaves) {
 				if (l.equals(query)){
 					continue;
-				//}else if(l.contains(donor)){
-				}else if ( Arrays.asList(donor.split(",")).stream().anyMatch(l::contains) ){
+				}
+				int category = categories.get(l);
+				if (pattern != null && (category & (Categories.DONOR | Categories.OPTIONAL | Categories.IGNORED)) != Categories.IGNORED) {
+					pattern.addLeaf(l, patternMasks);
+				}
+				if ((category & Categories.DONOR) != 0){
 					nb_donor +=1;
-					donorSeqs.add(l);
-					//System.out.println("#1 " + l + "\t" + nb_donor);
-					//System.out.println("#2 " + l + "\t" + ingroup);
+					donorSeqs.add(Labels.intern(l));
+				}else if ((category & Categories.OPTIONAL) != 0) {
+					optionSeqs.add(Labels.intern(l));
+				}else if ((category & Categories.IGNORED) != 0) {
+					nb_ignored +=1;
 				}else{
-					//if (!optionals.isEmpty() && Arrays.asList(optionals.split(",")).stream().anyMatch(isOptional(l))) {
-					if (optionals.length()>0 && Arrays.asList(optionals.split(",")).stream().anyMatch(l::contains)) {
-						optionSeqs.add(l);
-					} else if (ignored.length()>0 && Arrays.asList(ignored.split(",")).stream().anyMatch(l::contains) ) {
-							// do nothing
-					} else {
-							//System.out.println("#irrelevant " + l);
-							irrelevant.add(l);
-					}
+					irrelevant.add(Labels.intern(l));
 				}
 			}
 		}
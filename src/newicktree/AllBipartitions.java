@@ -14,12 +14,43 @@ public class AllBipartitions {
 	private int nbStrongMonophyleticNodes=0;
 	private int nbWeakMonophyleticNodes  =0;
 	private int outgroupSizeCutoff = 5;
+	private TreePattern pattern = null;
+	private boolean patternMatched = true;
+	/* leaves of the tree when bi-partitions are read from it rather than from strings */
+	private LeafTable table = null;
 	private ArrayList<String> supportDonorsAndOptionals = new ArrayList<String>();
-	private ArrayList<String> Donors       = new ArrayList<String>();
-	private ArrayList<String> DonorsStrong = new ArrayList<String>();
+	/* donor-groups (see DonorSet) of all supporting nodes, and of strongly supporting nodes */
+	private HashSet<DonorSet> Donors       = new HashSet<DonorSet>();
+	private HashSet<DonorSet> DonorsStrong = new HashSet<DonorSet>();
 	ArrayList<List<String>> minorContaminationsStrongNodes = new ArrayList<List<String>>();
 	ArrayList<List<String>> minorContaminationsWeakNodes   = new ArrayList<List<String>>();
 
+	/**
+	 * Constructor
+	 * Bi-partitions are read from the leaf ranges of a tree (see LeafTable), so the tree
+	 * is screened in time and memory linear in its size.
+	 * @param splits       the bi-partitions of a tree
+	 * @param query        query sequence
+	 * @param donor        donor taxa
+	 * @param support_cut  node cutoff
+	 * @param optionals    optional taxa allowed to be inside of monophyly
+	 * @param ignored      taxa to be ignored
+	 * @param outgroupSize minimal outgroup size
+	 * @param pattern      a TreePattern object the tree must also match (or null)
+	 */
+	public AllBipartitions(Splits splits, String query, String donor, double support_cut, String optionals, String ignored, int outgroupSize,
+			               TreePattern pattern) {
+		outgroupSizeCutoff = outgroupSize;
+		this.pattern = pattern;
+		table = new LeafTable(splits, query, donor, optionals, ignored, pattern);
+		visit(new Classification(table, support_cut), support_cut);
+	}
+	public AllBipartitions(List<String> bipartitions, String query, String donor, double support_cut, String optionals, String ignored, int outgroupSize,
+			               TreePattern pattern) {
+		outgroupSizeCutoff = outgroupSize;
+		this.pattern = pattern;
+		visitAllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored, outgroupSize);
+	}
 	public AllBipartitions(List<String> bipartitions, String query, String donor, double support_cut, String optionals, String ignored, int outgroupSize) {
 		outgroupSizeCutoff = outgroupSize;
 		visitAllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored, outgroupSize);
@@ -39,7 +70,9 @@ public class AllBipartitions {
 
 	
 	/**
-	 * Go through a list if all bi-partitions, do tests and population class variables
+	 * Go through a list if all bi-partitions, do tests and population class variables.
+	 * Bi-partitions are first classified one by one, then the outcomes are merged in 
+	 * input order.
 	 * @param bipartitions    a list containing all bi-partitions
 	 * @param query           query sequence
 	 * @param donor           donor taxa
@@ -57,12 +90,21 @@ public class AllBipartitions {
 									){
 
 		/*
-		 * Loop through bi-partitions and test them one by one. 
+		 * Classify bi-partitions. 
 		 * each bi-partition is in the format: 
 		 *   support-value   "TAB"   one-half   "TAB"   the-other-half 
 		 * 
 		 */
-		for (String l : bipartitions) {
+		List<String> splits = bipartitions instanceof RandomAccess ? bipartitions : new ArrayList<String>(bipartitions);
+		visit(new Classification(splits, query, donor, optionals, ignored, support_cut), support_cut);
+	}
+	
+	/* classify all bi-partitions, then merge the outcomes */
+	private void visit(Classification c, double support_cut) {
+		c.classify(0, c.length);
+		
+		/* merge the outcomes in input order */
+		for (int i=0; i<c.length; i++) {
 			/*
 			 * if 2 or more strongly supported nodes, break out of loop
 			 * this non-exhaustive search speeds up entire job, because not all bi-partitions need to examined
@@ -70,58 +112,48 @@ public class AllBipartitions {
 			/* leave it for now
 			if ( nbStrongMonophyleticNodes >=2 ) break;
 			*/
-			
-			/* break down the bi-partition string */
-			String[] data = l.split("\t");
-			double mySupport = Double.parseDouble(data[1]) ;
-			String half01 = data[2].substring(1, data[2].length()-1);
-			String half02 = data[3].substring(1, data[3].length()-1);
-			
-			/* examine the bi-partition in ABipatition class */
-			ABipartition bp = new ABipartition(half01+"\t"+ half02);
-			bp.checkIngroup(query, donor, optionals, ignored);
-			int aStatus = bp.getStatus();
-			aStatus += bp.getOutgroupStatus(outgroupSizeCutoff);
-//			System.out.println("aStatus1: " + aStatus);
+			double mySupport = c.supports[i];
+			int aStatus = c.status[i];
 			
 			/* if bi-partition supports query-donor monophyly */		
 			if (aStatus >0) {
 				/* if node supports query-donor monophyly */
 				if (mySupport >= support_cut) {
 					/* add in-group donors to variable Donors */
-					donorPopulationInRecord(bp.getDonorSeqs());
+					Donors.add(c.keys[i]);
 					/* test if this donor-group already presents in DonorsStrong. if so, skip */
-					if (donorPopulationInRecordStrong(bp.getDonorSeqs())) continue;
+					if (!DonorsStrong.add(c.keys[i])) continue;
 					
 					/* increment strong monophyletic node */
 					//nbStrongMonophyleticNodes += aStatus;
 					
 					/* make record of in-group details */
 					String record = new String(); 
-					record = Double.toString(mySupport) +"\t"+ String.join(",", bp.getDonorSeqs()) +"\t"+ String.join(",", bp.getOptionalSeqs());
+					record = Double.toString(mySupport) +"\t"+ String.join(",", c.parts[i].getDonorSeqs()) +"\t"+ String.join(",", c.parts[i].getOptionalSeqs());
 					supportDonorsAndOptionals.add(record);
 				/* if node does not support query-donor monophyly */
 				} else if (mySupport > 0) {
 					/* test if this donor-group already met anywhere (in Donors). if so, skip */
-					if (donorPopulationInRecord(bp.getDonorSeqs())) continue;
+					if (!Donors.add(c.keys[i])) continue;
 					
 					/* increment weak monophyletic node */
 					//nbWeakMonophyleticNodes   += aStatus;
 					
 					/* make record of in-group details */
 					String record = new String();
-					record = Double.toString(mySupport) +"\t"+ String.join(",", bp.getDonorSeqs()) +"\t"+ String.join(",", bp.getOptionalSeqs());
+					record = Double.toString(mySupport) +"\t"+ String.join(",", c.parts[i].getDonorSeqs()) +"\t"+ String.join(",", c.parts[i].getOptionalSeqs());
 					supportDonorsAndOptionals.add(record);	
 				}
 				
 			/* in-group is adjustable containing minimal irrelevant sequences (<3)*/				
 			} else if (aStatus == -1) {
 				/* if the collection of irrelevant sequences has something */
-				if (! bp.getMinorContamination().isEmpty()) {
+				List<String> contamination = c.parts[i].getMinorContamination();
+				if (! contamination.isEmpty()) {
 					if (mySupport >= support_cut){
-						minorContaminationsStrongNodes.add(bp.getMinorContamination());
+						minorContaminationsStrongNodes.add(contamination);
 					} else {
-						minorContaminationsWeakNodes.add(bp.getMinorContamination());
+						minorContaminationsWeakNodes.add(contamination);
 					}
 				}
 			}
@@ -129,11 +161,90 @@ public class AllBipartitions {
 		}
 		
 		
-		for (String record : DonorsStrong) {
-			if (Donors.contains(record)) Donors.remove(record);
-		}
+		Donors.removeAll(DonorsStrong);
 		nbStrongMonophyleticNodes = DonorsStrong.size();
 		nbWeakMonophyleticNodes = Donors.size();
+		
+		/* in-groups were described while classifying, so the pattern needs no pass over the splits */
+		if (pattern != null) patternMatched = pattern.matches(c.nodes);
+	}
+	
+	/**
+	 * The outcome of classifying each bi-partition: its support, its status
+	 * (monophyly status plus outgroup status), the key of the donor-group if it supports 
+	 * monophyly, and the bi-partition itself if it supports monophyly or is adjustable,
+	 * to list its in-group sequences when merging. Bi-partitions are read either from
+	 * strings or from the leaves of a tree (see LeafTable).
+	 */
+	private class Classification {
+		private List<String> splits;
+		private LeafTable table;
+		private int length;
+		private String query;
+		private String donor;
+		private String optionals;
+		private String ignored;
+		private double[] supports;
+		private int[] status;
+		private DonorSet[] keys;
+		private ABipartition[] parts;
+		/* in-groups described for a pattern (null without pattern) */
+		private TreePattern.Nodes nodes;
+		
+		private Classification(List<String> splits, String query, String donor, String optionals, String ignored, double support_cut) {
+			this(splits.size(), support_cut);
+			this.splits = splits;
+			this.query = query;
+			this.donor = donor;
+			this.optionals = optionals;
+			this.ignored = ignored;
+		}
+		
+		private Classification(LeafTable table, double support_cut) {
+			this(table.getSplits().getInteriorCount(), support_cut);
+			this.table = table;
+		}
+		
+		private Classification(int length, double support_cut) {
+			this.length = length;
+			supports = new double[length];
+			status = new int[length];
+			keys = new DonorSet[length];
+			parts = new ABipartition[length];
+			if (pattern != null) nodes = new TreePattern.Nodes(length, support_cut);
+		}
+		
+		/* classify bi-partitions [from, to) */
+		private void classify(int from, int to) {
+			for (int i=from; i<to; i++) {
+				Budget.check();
+				ABipartition bp;
+				if (table != null) {
+					supports[i] = Double.parseDouble(table.getSplits().getSupport(i));
+					bp = new ABipartition(table, i);
+				} else {
+					/* break down the bi-partition string */
+					String[] data = splits.get(i).split("\t");
+					supports[i] = Double.parseDouble(data[1]) ;
+					String half01 = data[2].substring(1, data[2].length()-1);
+					String half02 = data[3].substring(1, data[3].length()-1);
+					
+					/* examine the bi-partition in ABipatition class */
+					bp = new ABipartition(half01+"\t"+ half02);
+					bp.checkIngroup(query, donor, optionals, ignored, pattern);
+				}
+				int aStatus = bp.getStatus();
+				aStatus += bp.getOutgroupStatus(outgroupSizeCutoff);
+				status[i] = aStatus;
+				if (nodes != null) nodes.set(i, supports[i], aStatus, bp);
+				if (aStatus > 0) {
+					keys[i] = bp.getDonorSet();
+					parts[i] = bp;
+				} else if (aStatus == -1) {
+					parts[i] = bp;
+				}
+			}
+		}
 	}
 	
 	/** 
@@ -147,51 +258,6 @@ public class AllBipartitions {
 	}
 	*/
 	
-	/**
-	 * Sort elements in allDonors and concatenate into comma (','), compare the 
-	 * resulting super-donor to class variable Donors.
-	 * Donors are defined by supporting nodes regardless of bootstrap value 
-	 * If the super-donor is in Donors, return true. 
-	 * Otherwise, return false and add the super-donor into Donors. 
-	 * @param allDonors
-	 * @return status
-	 */
-	private boolean donorPopulationInRecord(List<String>allDonors) {
-		boolean status = true;
-		List<String> mydonors = new ArrayList<String>(allDonors);
-		Collections.sort(mydonors);
-		String mydonorstring = new String();
-		mydonorstring = String.join(",",mydonors);
-		if (Donors.contains(mydonorstring)) {
-		} else {
-			Donors.add(mydonorstring);
-			status = false;
-		}
-		return status;
-	}
-	
-	/**
-	 * Sort elements in allDonors and concatenate into comma (','), compare the 
-	 * resulting super-donor to class variable DonorsStrong.
-	 * DonorsStrong are defined by supporting nodes with bootstrap value greater than cut-off 
-	 * If the super-donor is in Donors, return true. 
-	 * Otherwise, return false and add the super-donor into Donors. 
-	 * @param allDonors
-	 * @return status
-	 */
-	private boolean donorPopulationInRecordStrong(List<String>allDonors) {
-		boolean status = true;
-		List<String> mydonors = new ArrayList<String>(allDonors);
-		Collections.sort(mydonors);
-		String mydonorstring = new String();
-		mydonorstring = String.join(",",mydonors);
-		if (DonorsStrong.contains(mydonorstring)) {
-		} else {
-			DonorsStrong.add(mydonorstring);
-			status = false;
-		}
-		return status;
-	}	
 	/*
 	 * getters
 	 */
@@ -204,12 +270,20 @@ public class AllBipartitions {
 	public ArrayList<String> getSupportDonorsAndOptionals(){
 		return supportDonorsAndOptionals;
 	}
+	// true if there is no pattern or the tree matches it (see TreePattern)
+	public boolean isPatternMatched(){
+		return patternMatched;
+	}
 	public ArrayList<List<String>> getMinorContaminationsStrongNodes(){
 		return minorContaminationsStrongNodes;
 	}
 	public ArrayList<List<String>> getMinorContaminationsWeakNodes(){
 		return minorContaminationsWeakNodes;
 	}
+	// leaves of the tree, or null if bi-partitions were read from strings
+	public LeafTable getLeafTable(){
+		return table;
+	}
 
 	
 	
@@ -6,42 +6,51 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 public class AllBipartitionsGeneralized {
 	private String donor;
+	private double support_cut;
+	private int outgroupSize = 5;
 	private List<String> bipartitions = new ArrayList<String>();
+	/* leaves of the tree, when bi-partitions were read from them (see LeafTable) */
+	private LeafTable table = null;
 	private int nbStrongMonophyleticNodes=0;
 	private int nbWeakMonophyleticNodes  =0;
 	private int nbAdjustedMonophyleticNodes =0;
 	List<List<String>> minorContaminationsStrongNodes = new ArrayList<List<String>>();
 	List<List<String>> minorContaminationsWeakNodes   = new ArrayList<List<String>>();
+	/* sequences forming a strongly supported monophyly with donors by themselves; found on first use */
+	private HashSet<String> rescued = null;
 
 	public AllBipartitionsGeneralized(List<String> bipartitions, String query, String donor,
 			double support_cut, String optionals, String ignored) {
-		//System.out.println("#AllBipartitionGeneralized 1");
-		this.donor = donor;
-		this.bipartitions = bipartitions;
-		
-		AllBipartitions tree = new AllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored);
-		nbStrongMonophyleticNodes = tree.getStrongNodes();
-		nbWeakMonophyleticNodes   = tree.getWeakNodes();
-		//System.out.println("#  "+ nbStrongMonophyleticNodes +" "+ nbWeakMonophyleticNodes);
-		
-		if (nbStrongMonophyleticNodes<=1) {
-			minorContaminationsStrongNodes = tree.getMinorContaminationsStrongNodes();
-			nbAdjustedMonophyleticNodes = checkMinorContamForAllNodes(minorContaminationsStrongNodes);
-			//System.out.println("#1 "+ fixedStrongNodes);
-		}
+		this(bipartitions, new AllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored), donor, support_cut, 5);
 	}
 	
 	public AllBipartitionsGeneralized(List<String> bipartitions, String query, String donor,
 			double support_cut) {
-		//System.out.println("#AllBipartitionGeneralized 2");
+		this(bipartitions, new AllBipartitions(bipartitions, query, donor, support_cut), donor, support_cut, 5);
+	}
+	
+	/**
+	 * Constructor reusing the outcome of the exclusive test, so that bi-partitions are
+	 * classified only once
+	 * @param bipartitions    a list containing all bi-partitions (unused if the exclusive test read them from a tree)
+	 * @param tree            the exclusive test of the same bi-partitions (see AllBipartitions)
+	 * @param donor           donor taxa
+	 * @param support_cut     node cutoff, also used for the monophyly of contaminants
+	 * @param outgroupSize    minimal outgroup size, also used for the monophyly of contaminants
+	 */
+	public AllBipartitionsGeneralized(List<String> bipartitions, AllBipartitions tree, String donor,
+			double support_cut, int outgroupSize) {
 		this.donor = donor;
 		this.bipartitions = bipartitions;
+		this.support_cut = support_cut;
+		this.outgroupSize = outgroupSize;
+		this.table = tree.getLeafTable();
 		
-		AllBipartitions tree = new AllBipartitions(bipartitions, query, donor, support_cut);
 		nbStrongMonophyleticNodes = tree.getStrongNodes();
 		nbWeakMonophyleticNodes   = tree.getWeakNodes();
 		
@@ -67,15 +76,58 @@ public class AllBipartitionsGeneralized {
 	
 	private boolean checkMinorContamForANode(List<String> contam ){
 		// Examine all contaminat (c), if all form 'c'-'donor' monophyly, then this biparitition is adjusted  
+		if (rescued == null) rescued = findRescued();
 		for (String c : contam) {
-			AllBipartitions bp = new AllBipartitions(bipartitions, c, donor, 90);
-			if ( bp.getStrongNodes() < 1 ) {
-				return false;
-			}
+			if (!rescued.contains(c)) return false;
 		}
 		return true;
 	}
 	
+	/**
+	 * Find, in one pass over the bi-partitions, every sequence that would have a strongly
+	 * supported monophyly with donors if it were the query: a half holding that sequence
+	 * and at least one donor but nothing else, with support and outgroup size meeting the
+	 * cutoffs. This stands for a full test of each contaminant as query.
+	 */
+	private HashSet<String> findRescued() {
+		if (table != null) return table.rescued(support_cut, outgroupSize);
+		HashSet<String> found = new HashSet<String>();
+		Categories categories = Categories.of(donor, "", "");
+		for (String bipartition : bipartitions) {
+			Budget.check();
+			String[] data = bipartition.split("\t");
+			if (Double.parseDouble(data[1]) < support_cut) continue;
+			String[] half01 = leaves(data[2]);
+			String[] half02 = leaves(data[3]);
+			rescue(half01, half02.length, categories, found);
+			rescue(half02, half01.length, categories, found);
+		}
+		return found;
+	}
+	
+	/* add the only non-donor sequence of an in-group made of it and donors */
+	private void rescue(String[] ingroup, int outgroup, Categories categories, HashSet<String> found) {
+		if (outgroup == 0 || outgroup < outgroupSize) return;
+		String single = null;
+		int nbDonor = 0;
+		for (String l : ingroup) {
+			if ((categories.get(l) & Categories.DONOR) != 0) {
+				nbDonor++;
+			} else if (single == null) {
+				single = l;
+			} else {
+				return;
+			}
+		}
+		if (single != null && nbDonor > 0) found.add(single);
+	}
+	
+	/* leaves of a half written as "[a, b, c]" */
+	private static String[] leaves(String half) {
+		if (half.length() <= 2) return new String[0];
+		return half.substring(1, half.length()-1).split(", ");
+	}
+	
 	/*
 	 * getters
 	 */
@@ -0,0 +1,18 @@
+package newicktree;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * The class Budget lets the long loops of tree processing give up as soon as
+ * their thread is interrupted, e.g., by a watchdog enforcing a time budget.
+ */
+public class Budget {
+
+	/**
+	 * Throw a CancellationException if the current thread has been interrupted.
+	 * The interrupt status is left for the caller to clear.
+	 */
+	public static void check() {
+		if (Thread.currentThread().isInterrupted()) throw new CancellationException("tree processing cancelled");
+	}
+}
@@ -0,0 +1,143 @@
+package newicktree;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The class Categories remembers how leaves are classified against a set of donor,
+ * optional and ignored taxa. A leaf is a DONOR if its label contains one of the donor
+ * names, or, when a taxonomy is loaded (see Taxonomy), if its lineage goes through one
+ * of them; OPTIONAL or IGNORED likewise. A label may match several of them. The
+ * substring matching is done once per label and the outcome is kept as a bitmask
+ * indexed by the label ID (see Labels). LeafTable classifies each leaf once per tree,
+ * so hits come from labels that recur across trees: replicate trees of a gene, trees
+ * screened again while watching, and the sequences of a genome shared by many trees.
+ *
+ * There is one shared instance per set of taxa (see of()), used by all worker threads.
+ * The bitmasks grow with the largest label ID seen, one byte per label, next to the
+ * label strings Labels keeps anyway; at most CAPACITY labels (4 MB) are cached, and
+ * labels beyond that are matched every time. Threads may race on a slot, which only
+ * means a label is matched more than once.
+ */
+public class Categories {
+	public static final int DONOR    = 1;
+	public static final int OPTIONAL = 2;
+	public static final int IGNORED  = 4;
+	/* marks a slot as filled, so that a leaf matching nothing is cached too */
+	private static final int KNOWN   = 8;
+	/* maximal number of labels cached per set of taxa */
+	public static final int CAPACITY = 1 << 22;
+
+	private static final ConcurrentHashMap<String,Categories> shared = new ConcurrentHashMap<String,Categories>();
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+
+	private String[] donors;
+	private String[] optionals;
+	private String[] ignored;
+	private Taxonomy taxonomy;
+	private int[] donorTaxa;
+	private int[] optionalTaxa;
+	private int[] ignoredTaxa;
+	private volatile byte[] masks = new byte[1024];
+
+	// constructor
+	public Categories(String donor, String optionals, String ignored) {
+		this.donors = donor.split(",");
+		this.optionals = optionals.isEmpty() ? new String[0] : optionals.split(",");
+		this.ignored = ignored.isEmpty() ? new String[0] : ignored.split(",");
+		this.taxonomy = Taxonomy.get();
+		if (taxonomy != null) {
+			donorTaxa = taxonomy.resolve(donor);
+			optionalTaxa = taxonomy.resolve(optionals);
+			ignoredTaxa = taxonomy.resolve(ignored);
+		}
+	}
+
+	/**
+	 * Return the shared instance for a set of taxa
+	 * @param donor     Name(s) of donor taxa joined with ","
+	 * @param optionals Name(s) of optional taxa joined with ","
+	 * @param ignored   Name(s) of ignored taxa joined with ","
+	 */
+	public static Categories of(String donor, String optionals, String ignored) {
+		String key = donor + "\t" + optionals + "\t" + ignored;
+		Categories c = shared.get(key);
+		if (c != null) return c;
+		return shared.computeIfAbsent(key, k -> new Categories(donor, optionals, ignored));
+	}
+
+	/**
+	 * Return the categories of a leaf as a bitmask of DONOR, OPTIONAL and IGNORED
+	 * @param label a leaf label
+	 */
+	public int get(String label) {
+		int id = Labels.id(label);
+		byte[] current = masks;
+		if (id < current.length) {
+			int mask = current[id];
+			if (mask != 0) {
+				hits.increment();
+				return mask & ~KNOWN;
+			}
+		}
+		misses.increment();
+		int mask = match(label);
+		if (id >= current.length) {
+			if (id >= CAPACITY) return mask;
+			current = grow(id);
+		}
+		current[id] = (byte) (mask | KNOWN);
+		return mask;
+	}
+
+	/* match a label against the taxa names, and against lineages if there is a taxonomy */
+	private int match(String label) {
+		int mask = 0;
+		if (containsAny(label, donors)) mask |= DONOR;
+		if (containsAny(label, optionals)) mask |= OPTIONAL;
+		if (containsAny(label, ignored)) mask |= IGNORED;
+		if (taxonomy != null) {
+			if (taxonomy.isWithin(label, donorTaxa)) mask |= DONOR;
+			if (taxonomy.isWithin(label, optionalTaxa)) mask |= OPTIONAL;
+			if (taxonomy.isWithin(label, ignoredTaxa)) mask |= IGNORED;
+		}
+		return mask;
+	}
+
+	private static boolean containsAny(String label, String[] names) {
+		for (String n : names) {
+			if (label.contains(n)) return true;
+		}
+		return false;
+	}
+
+	/* make room for an ID; returns the (possibly new) array */
+	private synchronized byte[] grow(int id) {
+		byte[] current = masks;
+		if (id < current.length) return current;
+		int length = current.length;
+		while (length <= id) length *= 2;
+		current = Arrays.copyOf(current, Math.min(length, CAPACITY));
+		masks = current;
+		return current;
+	}
+
+	/*
+	 * statistics over all instances
+	 */
+	public static long getLookups() {
+		return hits.sum() + misses.sum();
+	}
+	public static double getHitRatio() {
+		long lookups = getLookups();
+		return lookups == 0 ? 0 : (double) hits.sum() / lookups;
+	}
+	// return a line for the run summary
+	public static String summary() {
+		return String.format(Locale.ROOT, "leaf classification cache: %d lookups, %.1f%% hits, %d labels",
+				getLookups(), 100 * getHitRatio(), Labels.size());
+	}
+}
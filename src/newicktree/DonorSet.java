@@ -0,0 +1,80 @@
+package newicktree;
+
+import java.util.List;
+
+/**
+ * The class DonorSet is a 128-bit fingerprint of a group of donor sequences, used to
+ * tell whether two supporting nodes unite the query with the same donors. Sequences are
+ * turned into label IDs (see Labels), each ID is hashed twice with independent mixers
+ * and the hashes are summed, so the order in which they are listed does not matter and
+ * the fingerprint of a range of leaves is a difference of prefix sums (see LeafTable).
+ * Two different groups share a fingerprint with a chance of about 2^-128, so comparing
+ * fingerprints stands for comparing the sorted, joined names.
+ */
+public final class DonorSet {
+	private final long high;
+	private final long low;
+
+	// constructor
+	private DonorSet(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Return the fingerprint of a group of donor sequences
+	 * @param donors names of the donor sequences, in any order
+	 */
+	public static DonorSet of(List<String> donors) {
+		long high = 0;
+		long low  = 0;
+		for (String d : donors) {
+			int id = Labels.id(d);
+			high += high(id);
+			low  += low(id);
+		}
+		return of(high, low, donors.size());
+	}
+
+	/**
+	 * Return the fingerprint of a group of donor sequences from the sums of their hashes
+	 * @param high  sum of high() of the label IDs
+	 * @param low   sum of low() of the label IDs
+	 * @param count number of sequences
+	 */
+	static DonorSet of(long high, long low, int count) {
+		return new DonorSet(mix(high + count), mix(low ^ ((long) count << 32)));
+	}
+
+	/* the two hashes of a label ID */
+	static long high(int id) {
+		return mix(0x243F6A8885A308D3L + id * 0x9E3779B97F4A7C15L);
+	}
+	static long low(int id) {
+		return mix((0x13198A2E03707344L ^ id) * 0xC2B2AE3D27D4EB4FL + 0x632BE59BD9B4E019L);
+	}
+
+	/* finalizer of SplitMix64 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof DonorSet)) return false;
+		DonorSet other = (DonorSet) o;
+		return high == other.high && low == other.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (low ^ (low >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+}
@@ -0,0 +1,110 @@
+package newicktree;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class Labels is a process-wide symbol table of leaf labels (sequence names).
+ * The same taxa recur across many gene trees, so each distinct label is kept once and
+ * given a dense int ID (0, 1, 2 ...) in the order labels are first seen. Trees, splits
+ * and in-group lists all refer to the one canonical String, so the heap grows with the
+ * number of distinct labels rather than with the number of leaves read.
+ *
+ * Lookups are lock-free and safe from any thread; only a new label takes a lock. The
+ * table can be saved and loaded (one label per line, in ID order), so that files keyed
+ * by label IDs (indexes, caches) stay valid between runs.
+ */
+public class Labels {
+	private static final ConcurrentHashMap<String,Integer> ids = new ConcurrentHashMap<String,Integer>();
+	private static volatile String[] names = new String[1024];
+	private static int size = 0;
+
+	/**
+	 * Return the ID of a label, adding the label if it is new
+	 * @param label a leaf label
+	 * @return a dense int ID
+	 */
+	public static int id(String label) {
+		Integer id = ids.get(label);
+		if (id != null) return id;
+		synchronized (Labels.class) {
+			id = ids.get(label);
+			if (id != null) return id;
+			if (size == names.length) names = Arrays.copyOf(names, size * 2);
+			/* the name is stored before the ID is published, so label(id) always finds it */
+			names[size] = label;
+			ids.put(label, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Return the ID of a label, or -1 if the label has never been seen
+	 */
+	public static int find(String label) {
+		Integer id = ids.get(label);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Return the label of an ID
+	 * @throws IndexOutOfBoundsException if the ID was never given out
+	 */
+	public static String label(int id) {
+		String[] current = names;
+		if (id < 0 || id >= current.length || current[id] == null) throw new IndexOutOfBoundsException("unknown label id: " + id);
+		return current[id];
+	}
+
+	/**
+	 * Return the canonical copy of a label (adding it if it is new)
+	 */
+	public static String intern(String label) {
+		return label(id(label));
+	}
+
+	/** return the number of distinct labels */
+	public static int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Write all labels, one per line in ID order
+	 * @param file the output file
+	 */
+	public static synchronized void save(Path file) throws IOException {
+		String[] current = names;
+		int n = size;
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int i=0; i<n; i++) {
+				writer.write(current[i]);
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Read labels written by save(). Labels are given the IDs they had when saved; this
+	 * is only possible if the labels seen so far are a prefix of the saved ones
+	 * @param file the input file
+	 * @return the number of labels read
+	 * @throws IllegalStateException if a label already has a different ID
+	 */
+	public static synchronized int load(Path file) throws IOException {
+		int n = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (id(line) != n) throw new IllegalStateException("label " + line + " already has another id than " + n + " in " + file);
+				n++;
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,271 @@
+package newicktree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * The class LeafTable describes the leaves of a tree (see Splits) against a query and a
+ * set of donor, optional and ignored taxa, so that the in-group of any bi-partition can
+ * be described without listing it. Each leaf is classified once, in tree order; the
+ * in-group of interior node i is either its range [from, to) or the complement of it,
+ * whichever holds the query, so counts are differences of prefix sums, donor-groups
+ * (see DonorSet) are differences of prefix sums of fingerprints, and the taxa of a
+ * pattern (see TreePattern) are ORs of the leaves below a node, or of the leaves before
+ * and after its range. Sequences are only listed for the few in-groups that are
+ * reported, by searching the sorted positions of each class.
+ *
+ * Everything is held in arrays over leaves and interior nodes, so the table takes time
+ * and memory linear in the size of the tree, and each bi-partition is then described
+ * in constant time.
+ */
+public class LeafTable {
+	/* classes of a leaf; a leaf matching several taxa takes the first class it matches */
+	static final int DONOR    = 0;
+	static final int OPTIONAL = 1;
+	static final int IGNORED  = 2;
+	static final int OTHER    = 3;
+	static final int QUERY    = 4;
+
+	private Splits splits;
+	private int leaves;
+	/* position of the query in the tree order, -1 if the tree does not have it */
+	private int query;
+	private boolean queryDonor;
+	private String[] labels;
+	/* counts[k][p]: number of leaves of class k before position p */
+	private int[][] counts = new int[5][];
+	/* sorted positions of donors, optionals and others; and of leaves that are not donors */
+	private int[][] positions = new int[4][];
+	private int[] nonDonors;
+	/* prefix sums of the fingerprints of donors (see DonorSet) */
+	private long[] highs;
+	private long[] lows;
+	/* taxa of a pattern (see TreePattern.addLeaf) below each node, before and after each position;
+	 * two words per entry: taxa found, and only() lists gone beyond */
+	private long[] inside;
+	private long[] prefix;
+	private long[] suffix;
+
+	/**
+	 * Constructor
+	 * @param splits    the bi-partitions of a tree
+	 * @param query     Name of query sequence
+	 * @param donor     Name(s) of donor taxa. Multiple taxa is joined with comma ","
+	 * @param optionals Name(s) of optional taxa. Multiple taxa is joined with comma ","
+	 * @param ignored   Name(s) of taxa that to be ignored. Multiple taxa is joined with comma ","
+	 * @param pattern   a TreePattern object (or null)
+	 */
+	public LeafTable(Splits splits, String query, String donor, String optionals, String ignored, TreePattern pattern) {
+		this.splits = splits;
+		this.leaves = splits.getLeafCount();
+		this.query = splits.position(query);
+		Categories categories = Categories.of(donor, optionals, ignored);
+		queryDonor = (categories.get(query) & Categories.DONOR) != 0;
+
+		labels = new String[leaves];
+		byte[] classes = new byte[leaves];
+		int[] sizes = new int[5];
+		for (int p=0; p<leaves; p++) {
+			Budget.check();
+			labels[p] = splits.getLeaf(p);
+			classes[p] = (byte) classify(labels[p], query, categories);
+			sizes[classes[p]]++;
+		}
+
+		for (int k=0; k<5; k++) counts[k] = new int[leaves + 1];
+		for (int k=0; k<4; k++) positions[k] = new int[sizes[k]];
+		nonDonors = new int[leaves - sizes[DONOR] - (queryDonor ? sizes[QUERY] : 0)];
+		highs = new long[leaves + 1];
+		lows = new long[leaves + 1];
+		int[] filled = new int[4];
+		int nbNonDonors = 0;
+		for (int p=0; p<leaves; p++) {
+			int k = classes[p];
+			for (int c=0; c<5; c++) counts[c][p+1] = counts[c][p];
+			counts[k][p+1]++;
+			highs[p+1] = highs[p];
+			lows[p+1] = lows[p];
+			if (k == DONOR) {
+				int id = Labels.id(labels[p]);
+				highs[p+1] += DonorSet.high(id);
+				lows[p+1] += DonorSet.low(id);
+			}
+			if (k < QUERY) positions[k][filled[k]++] = p;
+			if (k != DONOR && !(k == QUERY && queryDonor)) nonDonors[nbNonDonors++] = p;
+		}
+
+		if (pattern != null) gather(pattern, classes);
+	}
+
+	/* the class of a leaf; all leaves named as the query are left out of in-groups */
+	private static int classify(String label, String query, Categories categories) {
+		if (label.equals(query)) return QUERY;
+		int category = categories.get(label);
+		if ((category & Categories.DONOR) != 0) return DONOR;
+		if ((category & Categories.OPTIONAL) != 0) return OPTIONAL;
+		if ((category & Categories.IGNORED) != 0) return IGNORED;
+		return OTHER;
+	}
+
+	/*
+	 * OR the taxa of a pattern over leaves that are neither the query nor only ignored:
+	 * before and after each position, and below each interior node. Interior nodes come in
+	 * post-order, so the children of a node are the nodes left on the stack whose range
+	 * starts within its own.
+	 */
+	private void gather(TreePattern pattern, byte[] classes) {
+		long[] masks = new long[2 * leaves];
+		long[] acc = new long[2];
+		for (int p=0; p<leaves; p++) {
+			if (classes[p] == QUERY || classes[p] == IGNORED) continue;
+			acc[0] = 0;
+			acc[1] = 0;
+			pattern.addLeaf(labels[p], acc);
+			masks[2*p] = acc[0];
+			masks[2*p+1] = acc[1];
+		}
+		prefix = new long[2 * (leaves + 1)];
+		suffix = new long[2 * (leaves + 1)];
+		for (int p=0; p<leaves; p++) {
+			prefix[2*p+2] = prefix[2*p] | masks[2*p];
+			prefix[2*p+3] = prefix[2*p+1] | masks[2*p+1];
+		}
+		for (int p=leaves-1; p>=0; p--) {
+			suffix[2*p] = suffix[2*p+2] | masks[2*p];
+			suffix[2*p+1] = suffix[2*p+3] | masks[2*p+1];
+		}
+
+		int nodes = splits.getInteriorCount();
+		inside = new long[2 * nodes];
+		ArrayDeque<Integer> done = new ArrayDeque<Integer>();
+		for (int i=0; i<nodes; i++) {
+			int from = splits.getFrom(i);
+			int cursor = splits.getTo(i);
+			while (!done.isEmpty() && splits.getFrom(done.peek()) >= from) {
+				int child = done.pop();
+				orLeaves(masks, splits.getTo(child), cursor, i);
+				inside[2*i] |= inside[2*child];
+				inside[2*i+1] |= inside[2*child+1];
+				cursor = splits.getFrom(child);
+			}
+			orLeaves(masks, from, cursor, i);
+			done.push(i);
+		}
+	}
+
+	/* OR the taxa of leaves [from, to) into those below interior node i */
+	private void orLeaves(long[] masks, int from, int to, int i) {
+		for (int p=from; p<to; p++) {
+			inside[2*i] |= masks[2*p];
+			inside[2*i+1] |= masks[2*p+1];
+		}
+	}
+
+	/*
+	 * getters
+	 */
+	public Splits getSplits() {
+		return splits;
+	}
+	public int getLeafCount() {
+		return leaves;
+	}
+	// true if the tree has the query
+	public boolean hasQuery() {
+		return query != -1;
+	}
+	// true if interior node i has the query below it, i.e., its in-group is its range
+	boolean isInside(int i) {
+		return query >= splits.getFrom(i) && query < splits.getTo(i);
+	}
+	// number of leaves of a class in the in-group of interior node i
+	int count(int k, int i, boolean inside) {
+		int below = counts[k][splits.getTo(i)] - counts[k][splits.getFrom(i)];
+		return inside ? below : counts[k][leaves] - below;
+	}
+	// number of leaves in the in-group of interior node i, including the query
+	int size(int i, boolean inside) {
+		int below = splits.getTo(i) - splits.getFrom(i);
+		return inside ? below : leaves - below;
+	}
+	// fingerprint of the donors in the in-group of interior node i (see DonorSet)
+	DonorSet donorSet(int i, boolean inside) {
+		int from = splits.getFrom(i);
+		int to = splits.getTo(i);
+		long high = highs[to] - highs[from];
+		long low = lows[to] - lows[from];
+		if (!inside) {
+			high = highs[leaves] - high;
+			low = lows[leaves] - low;
+		}
+		return DonorSet.of(high, low, count(DONOR, i, inside));
+	}
+	// taxa of a pattern in the in-group of interior node i (0: taxa, 1: only() lists gone beyond)
+	long mask(int i, boolean inside, int which) {
+		if (prefix == null) return 0;
+		if (inside) return this.inside[2*i + which];
+		return prefix[2*splits.getFrom(i) + which] | suffix[2*splits.getTo(i) + which];
+	}
+
+	/**
+	 * Return the sequences of a class in the in-group of interior node i, in tree order
+	 * @param k DONOR, OPTIONAL or OTHER
+	 */
+	ArrayList<String> list(int k, int i, boolean inside) {
+		int[] sorted = positions[k];
+		int from = splits.getFrom(i);
+		int to = splits.getTo(i);
+		int a = lowerBound(sorted, from);
+		int b = lowerBound(sorted, to);
+		ArrayList<String> seqs = new ArrayList<String>(inside ? b - a : sorted.length - (b - a));
+		if (inside) {
+			for (int j=a; j<b; j++) seqs.add(labels[sorted[j]]);
+		} else {
+			for (int j=0; j<a; j++) seqs.add(labels[sorted[j]]);
+			for (int j=b; j<sorted.length; j++) seqs.add(labels[sorted[j]]);
+		}
+		return seqs;
+	}
+
+	/**
+	 * Find every sequence that would have a strongly supported monophyly with donors if it
+	 * were the query: a half of a bi-partition holding that sequence and at least one donor
+	 * but nothing else, with support and outgroup size meeting the cutoffs (see
+	 * AllBipartitionsGeneralized). The query counts by its own taxa here.
+	 * @param support_cut  node cutoff
+	 * @param outgroupSize minimal outgroup size
+	 */
+	public HashSet<String> rescued(double support_cut, int outgroupSize) {
+		HashSet<String> found = new HashSet<String>();
+		for (int i=0; i<splits.getInteriorCount(); i++) {
+			Budget.check();
+			if (Double.parseDouble(splits.getSupport(i)) < support_cut) continue;
+			rescue(i, true, outgroupSize, found);
+			rescue(i, false, outgroupSize, found);
+		}
+		return found;
+	}
+
+	/* add the only non-donor sequence of a half made of it and donors */
+	private void rescue(int i, boolean inside, int outgroupSize, HashSet<String> found) {
+		int outgroup = leaves - size(i, inside);
+		if (outgroup == 0 || outgroup < outgroupSize) return;
+		int donors = count(DONOR, i, inside) + (queryDonor ? count(QUERY, i, inside) : 0);
+		if (donors == 0 || size(i, inside) - donors != 1) return;
+		int from = splits.getFrom(i);
+		int to = splits.getTo(i);
+		int a = lowerBound(nonDonors, from);
+		int b = lowerBound(nonDonors, to);
+		int single = inside ? nonDonors[a] : (a > 0 ? nonDonors[0] : nonDonors[b]);
+		found.add(labels[single]);
+	}
+
+	/* index of the first value not below key in a sorted array */
+	private static int lowerBound(int[] sorted, int key) {
+		int index = Arrays.binarySearch(sorted, key);
+		if (index < 0) return -index - 1;
+		return index;
+	}
+}
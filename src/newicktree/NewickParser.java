@@ -0,0 +1,105 @@
+package newicktree;
+
+/**
+ * The class NewickParser turns a newick string into a tree of TreeNode objects in a
+ * single pass over the string. It is iterative, so very deep (e.g., ladder-like) trees
+ * do not overflow the stack. Quoted labels ('...') are unquoted, comments ([...]) and
+ * white space outside of labels are dropped, and branch lengths are kept as written.
+ * Leaf labels are the canonical copies from Labels.
+ */
+public class NewickParser {
+
+	/**
+	 * Parse a newick string
+	 * @param newick a newick tree string, with or without the ending ';'
+	 * @return the root node
+	 * @throws IllegalArgumentException if the string is not a well-formed newick tree
+	 */
+	public static TreeNode parse(String newick) {
+		TreeNode root = new TreeNode();
+		TreeNode current = root;
+		int depth = 0;
+		int i = 0;
+		int n = newick.length();
+		while (i < n) {
+			char c = newick.charAt(i);
+			switch (c) {
+				case '(':
+					TreeNode child = new TreeNode();
+					current.addChild(child);
+					current = child;
+					depth++;
+					i++;
+					break;
+				case ',':
+					if (current.getParent() == null) throw malformed(newick, i, "',' outside of parentheses");
+					TreeNode sibling = new TreeNode();
+					current.getParent().addChild(sibling);
+					current = sibling;
+					i++;
+					break;
+				case ')':
+					if (depth == 0) throw malformed(newick, i, "unbalanced ')'");
+					current = current.getParent();
+					depth--;
+					i++;
+					break;
+				case ':':
+					int end = i + 1;
+					while (end < n && ",();[".indexOf(newick.charAt(end)) == -1) end++;
+					current.setLength(newick.substring(i + 1, end).trim());
+					i = end;
+					break;
+				case '[':
+					int close = newick.indexOf(']', i);
+					if (close == -1) throw malformed(newick, i, "unterminated comment");
+					i = close + 1;
+					break;
+				case ';':
+					i = n;
+					break;
+				case '\'':
+					StringBuilder quoted = new StringBuilder();
+					i++;
+					while (true) {
+						if (i >= n) throw malformed(newick, i, "unterminated quoted label");
+						char q = newick.charAt(i);
+						if (q == '\'') {
+							/* a doubled quote stands for a quote inside the label */
+							if (i + 1 < n && newick.charAt(i + 1) == '\'') {
+								quoted.append('\'');
+								i += 2;
+								continue;
+							}
+							i++;
+							break;
+						}
+						quoted.append(q);
+						i++;
+					}
+					current.setLabel(label(current, quoted.toString()));
+					break;
+				default:
+					if (Character.isWhitespace(c)) {
+						i++;
+						break;
+					}
+					int stop = i;
+					while (stop < n && ",():;[".indexOf(newick.charAt(stop)) == -1) stop++;
+					current.setLabel(label(current, newick.substring(i, stop).trim()));
+					i = stop;
+			}
+		}
+		if (depth != 0) throw malformed(newick, n, "unbalanced '('");
+		return root;
+	}
+
+	/* leaf labels are shared across trees (see Labels); supports of interior nodes are not */
+	private static String label(TreeNode node, String label) {
+		return node.isLeaf() ? Labels.intern(label) : label;
+	}
+
+	private static IllegalArgumentException malformed(String newick, int index, String reason) {
+		return new IllegalArgumentException("malformed newick tree at character " + index + ": " + reason);
+	}
+}
@@ -1,14 +1,14 @@
 package newicktree;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public class NewickTree {
 	
-	private ArrayList<String> edges = new ArrayList<String>();
-    private String newick_tree = new String();
-    private HashMap<String,String> nsupports = new HashMap<String,String>(); 
+    private String line = new String();
+    private TreeNode root = null;
+    private Splits splits = null;
+    private int nb_leaves = 0;
     
 	// constructor
 	public NewickTree() {
@@ -16,13 +16,14 @@ public class NewickTree {
 	public NewickTree(String line) {
 		line = line.trim();
 		if (! line.isEmpty()) {
-			this.newick_tree = line;
-			Decomposition();			
+			this.line = line;
+			this.nb_leaves = countLeaves(line);
+			this.root = NewickParser.parse(line);
 		}
 	}
 	//
 	public String toString() {
-		return this.newick_tree;
+		return this.line;
 	}
 	
 	
@@ -30,35 +31,48 @@ public class NewickTree {
 	 *  getters
 	 */
 	
-	// return all directional edges 
-	public ArrayList<String> getBraches() {
-		return edges;
-	}
-	// return all bi-partitions of leaves
+	// return all bi-partitions of leaves, putting the half containing "seed" first (see Splits)
 	public List<String> getBipartitions(String seed) {
-		Graph graph = new Graph(edges);
-		return graph.fision(seed, nsupports);
+		return getSplits().fision(seed);
 	}
 	public List<String> getBipartitions() {
 		String seed = null;
-		//return graph.fision("EThermoplasma_acidophilum.WP_010901349.1");
 		return getBipartitions(seed);
 	}
 
+	// return the number of leaves (terminal sequences) in the tree
+	public int getLeafCount() {
+		return nb_leaves;
+	}
+	
+	// return the parsed tree model (see NewickParser); polytomies are nodes with k children
+	public TreeNode getRoot() {
+		if (root == null) root = NewickParser.parse(line);
+		return root;
+	}
+	// return the bi-partitions of the tree as leaf ranges (see Splits)
+	public Splits getSplits() {
+		if (splits == null) splits = new Splits(getRoot());
+		return splits;
+	}
+	
+	// return the tree with the leaf containing "leaf" written first, keeping 
+	// original branch lengths and supports (see NewickWriter)
 	public String getQueryTopTree(String leaf) {
-		Graph nt = new Graph(edges);
-		return nt.writeNewickTree(nsupports, leaf);
+		return NewickWriter.write(getRoot(), leaf);
 	}
 	public String getTree() {
 		String query = null;
 		return getQueryTopTree(query);
 	}
 
-	public String getRerootedTree(ArrayList<String> input_edges, String node) {
-		// Network nt = new Network(input_edges);
-		// String tree = Network.growTree(node);
- 
-		return null;
+	// return the tree rooted on the branch leading to "leaf" (see Reroot)
+	public String getRerootedTree(String leaf) {
+		return NewickWriter.write(Reroot.atLeaf(NewickParser.parse(line), leaf));
+	}
+	// return the tree rooted at the midpoint of the path between leaves "a" and "b"
+	public String getMidpointRootedTree(String a, String b) {
+		return NewickWriter.write(Reroot.atMidpoint(NewickParser.parse(line), a, b));
 	}
 
 
@@ -66,97 +80,73 @@ public class NewickTree {
 	 * methods for core processing
 	 */
 	
-	/**
-	 * this method goes through the tree visiting each ")" and makes judgment if
-	 * bifurcations are left in the newick tree to be parsed. The loop stops when
-	 * the left most ")" is <3 index to the right end of string newick tree
-	 * 
-	 * it also take care of the leftover of newick tree and turn it into edges
-	 */
-	private void Decomposition() {
-        int node_tag = 0;
-        int count=0;
-        while (true) {
-            int cbracket_right = newick_tree.indexOf(")");
-            if (cbracket_right > (newick_tree.length()-3) ) {
-                break;
-            } else if (count >=1000) {
-                break;
-            } else {
-                edges.addAll(collapsBifurcation(node_tag));
-            	//System.out.println(newick_tree);
-                node_tag++;
-            }
-            count++;
-        }
-        ArrayList<String> remaining_edges = new ArrayList<String>();        
-        Parser_xfurcation pt = new Parser_xfurcation(newick_tree.toString());
-        remaining_edges = pt.getEdges();
-        edges.addAll(remaining_edges);
-        //return bifurcations;
+	// count leaves as the number of commas plus one, ignoring quoted labels and comments
+	public static int countLeaves(String line) {
+		int commas = 0;
+		boolean quoted = false;
+		int comment = 0;
+		for (int i=0; i<line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\'') {
+				quoted = !quoted;
+			} else if (quoted) {
+				continue;
+			} else if (c == '[') {
+				comment++;
+			} else if (c == ']') {
+				comment--;
+			} else if (c == ',' && comment == 0) {
+				commas++;
+			}
+		}
+		return commas + 1;
+	}
+	
+	// list leaf labels (canonical copies from Labels) in a single pass, without building the tree
+	public static List<String> getLeafLabels(String line) {
+		ArrayList<String> labels = new ArrayList<String>();
+		/* a label right after '(' or ',' names a leaf; after ')' it is the support of a node */
+		boolean leaf = true;
+		int n = line.length();
+		int i = 0;
+		while (i < n) {
+			char c = line.charAt(i);
+			if (c == '(' || c == ',') {
+				leaf = true;
+				i++;
+			} else if (c == ')') {
+				leaf = false;
+				i++;
+			} else if (c == ':') {
+				i++;
+				while (i < n && ",();[".indexOf(line.charAt(i)) == -1) i++;
+			} else if (c == '[') {
+				int close = line.indexOf(']', i);
+				i = close == -1 ? n : close + 1;
+			} else if (c == ';' || Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '\'') {
+				/* a doubled quote stands for a quote inside the label */
+				int close = i + 1;
+				while (close < n) {
+					if (line.charAt(close) != '\'') close++;
+					else if (close + 1 < n && line.charAt(close + 1) == '\'') close += 2;
+					else break;
+				}
+				if (leaf) labels.add(Labels.intern(line.substring(i + 1, Math.min(close, n)).replace("''", "'")));
+				leaf = false;
+				i = close + 1;
+			} else {
+				int stop = i;
+				while (stop < n && ",():;[".indexOf(line.charAt(stop)) == -1) stop++;
+				if (leaf) labels.add(Labels.intern(line.substring(i, stop).trim()));
+				leaf = false;
+				i = stop;
+			}
+		}
+		return labels;
 	}
 	
-	/**
-	 * helper method that breaks bifurcations down to nodes/leaves
-	 * collaps bifurcation one by one and updates newick tree at the end of each cycle
-	 */
-    private ArrayList<String> collapsBifurcation (int node_tag) {
-        String interior_node = Integer.toString(node_tag);
-        interior_node = "node_" + interior_node + ":0.1";
-        
-        ArrayList<String> edges = new ArrayList<String>();
-        int bifurcation_left;
-        int bifurcation_right;
-        int cbracket_right = newick_tree.indexOf(")");
-        int cbracket_left  = newick_tree.lastIndexOf("(", cbracket_right);
-        char leading_char  = newick_tree.charAt(cbracket_left-1);
-        /* 
-         * There are 2 ways that a bifurcation is represented in newick tree
-         * 1)  ((A:0.1,B:0.1)95:0.01 , c)    # bifurcation to the left of comma 
-         * 2a) (c ,(A:0.1,B:0.1)95:0.01)     # bifurcation to the right of comma
-         * 2b) (c ,(A:0.1,B:0.1)95:0.01, d)  # bifurcation to the right of comma; the tree is trifurcation
-         */
-        if (leading_char == ',') {
-        	// 2a) scenario
-            int ending_paranthesis = newick_tree.indexOf(")",cbracket_right+1);
-            // 2b) scenario
-            int ending_comma = newick_tree.indexOf(",",cbracket_right);
-            bifurcation_left  = cbracket_left;            
-            if (ending_comma > ending_paranthesis || ending_comma == -1) {
-                bifurcation_right = ending_paranthesis;
-            } else {
-                bifurcation_right = ending_comma;
-            }
-
-        } else {
-            bifurcation_left  = cbracket_left;
-            int ending_comma   = newick_tree.indexOf(",", cbracket_right);
-            bifurcation_right = ending_comma;
-        }
-        // build reduced tree for the next round of bifurcation recognition
-        String wing_left   = newick_tree.substring(0, bifurcation_left);
-        String bifurcation = newick_tree.substring(bifurcation_left,bifurcation_right);
-        //String bifurcation_t = newick_tree.substring(bifurcation_left-10,bifurcation_right+10);
-        String wing_right  = newick_tree.substring(bifurcation_right);
-        newick_tree = new String(wing_left + interior_node + wing_right);
-                
-        // make edges for the collapsed bifurcation
-        Parser_xfurcation pb = new Parser_xfurcation(bifurcation,interior_node);
-        edges = pb.getEdges();
-        
-        // populate hashmap nsupports 
-        interior_node = Integer.toString(node_tag);
-        interior_node = "node_" + interior_node;
-        String nsupport = pb.getNodeSupport();
-        nsupports.put(interior_node, nsupport);
-        
-
-        // temporary output for debug
-        //System.out.println("# " + interior_node + " ---> " + bifurcation);
-        
-        return edges;
-    }
-
     public static void main(String[] args) {
     	NewickTree tree = new NewickTree(
     			"(Cuniculiplasma_divulgatum.WP_021788675.1:0.0773168973,xxx:0.2,(((((((Cafeteria_roenbergensis.YP_003969862.1:1.0155268887,Acanthamoeba_polyphaga.YP_003986746.1:0.6713382986)96:0.303775,Chrysochromulina_ericina.YP_009173464.1:0.9724348142)88:0.232339,add.evm.model.contig1250.9xx:0.8524546185)100:0.785817,"
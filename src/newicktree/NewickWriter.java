@@ -0,0 +1,107 @@
+package newicktree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The class NewickWriter writes a tree of TreeNode objects as a newick string in
+ * linear time, with original branch lengths and supports. Optionally the query is
+ * put first: at every node on the path from the root to the query, the child leading
+ * to the query is written before its siblings (as Graph.writeNewickTree used to do).
+ * The topology is not changed. The writer is iterative, so deep trees are fine.
+ */
+public class NewickWriter {
+
+	/* a node being written and the index of its next child */
+	private static class Frame {
+		private TreeNode node;
+		private List<TreeNode> children;
+		private int next = 0;
+
+		private Frame(TreeNode node, List<TreeNode> children) {
+			this.node = node;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * Write a tree
+	 * @param root the root node
+	 * @return a newick tree string ending with ';'
+	 */
+	public static String write(TreeNode root) {
+		return write(root, null);
+	}
+
+	/**
+	 * Write a tree putting the query first
+	 * @param root the root node
+	 * @param query a string for the query; the leaf of that name, or else the first leaf
+	 *        whose name contains it, is put first. If null, empty or not found, children
+	 *        keep their order.
+	 * @return a newick tree string ending with ';'
+	 */
+	public static String write(TreeNode root, String query) {
+		HashSet<TreeNode> path = pathTo(root, query);
+		StringBuilder sb = new StringBuilder();
+		ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+		open(sb, stack, root, path);
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.next < frame.children.size()) {
+				if (frame.next > 0) sb.append(',');
+				open(sb, stack, frame.children.get(frame.next++), path);
+			} else {
+				sb.append(')');
+				close(sb, frame.node);
+				stack.pop();
+			}
+		}
+		return sb.append(';').toString();
+	}
+
+	/* write a leaf, or the opening of an interior node whose children are written next */
+	private static void open(StringBuilder sb, ArrayDeque<Frame> stack, TreeNode node, HashSet<TreeNode> path) {
+		if (node.isLeaf()) {
+			close(sb, node);
+			return;
+		}
+		List<TreeNode> children = node.getChildren();
+		if (!path.isEmpty()) {
+			/* move the child leading to the query to the front; the others keep their order */
+			for (int i=1; i<children.size(); i++) {
+				if (path.contains(children.get(i))) {
+					children = new ArrayList<TreeNode>(children);
+					children.add(0, children.remove(i));
+					break;
+				}
+			}
+		}
+		sb.append('(');
+		stack.push(new Frame(node, children));
+	}
+
+	/* write the label and branch length of a node */
+	private static void close(StringBuilder sb, TreeNode node) {
+		sb.append(quote(node.getLabel()));
+		if (node.getLength() != null) sb.append(':').append(node.getLength());
+	}
+
+	/* find the nodes on the path from the root to the query leaf (see TreeNode.findLeaf) */
+	private static HashSet<TreeNode> pathTo(TreeNode root, String query) {
+		HashSet<TreeNode> path = new HashSet<TreeNode>();
+		if (query == null || query.isEmpty()) return path;
+		for (TreeNode n = root.findLeaf(query); n != null; n = n.getParent()) path.add(n);
+		return path;
+	}
+
+	/* quote a label if it holds characters with a meaning in newick */
+	private static String quote(String label) {
+		for (int i=0; i<label.length(); i++) {
+			if (" \t(),:;[]'".indexOf(label.charAt(i)) != -1) return "'" + label.replace("'", "''") + "'";
+		}
+		return label;
+	}
+}
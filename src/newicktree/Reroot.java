@@ -0,0 +1,209 @@
+package newicktree;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The class Reroot moves the root of a parsed tree (see NewickParser) in time linear
+ * in the number of nodes:
+ *   atLeaf     - on the branch leading to a leaf, so the leaf is the outgroup
+ *   atMidpoint - at the midpoint of the path between two leaves
+ *   atOutgroup - on the branch separating a given ingroup of the query from the rest
+ * The new root is placed on a branch, whose length is shared between the two sides.
+ * Supports belong to branches, so they move along when branches change direction.
+ * An old root left with a single child is removed. The tree is changed in place and
+ * the new root is returned.
+ */
+public class Reroot {
+
+	/**
+	 * Root on the branch leading to a leaf
+	 * @param root the current root
+	 * @param leaf a string for the leaf; an exact name, or else the first leaf containing it
+	 * @return the new root
+	 * @throws IllegalArgumentException if the leaf is not found
+	 */
+	public static TreeNode atLeaf(TreeNode root, String leaf) {
+		TreeNode node = findLeaf(root, leaf);
+		return onBranch(root, node, half(node.getLength()));
+	}
+
+	/**
+	 * Root at the midpoint of the path between two leaves (missing branch lengths count as 0)
+	 * @param root the current root
+	 * @param a a string for the first leaf
+	 * @param b a string for the second leaf
+	 * @return the new root
+	 * @throws IllegalArgumentException if a leaf is not found or both are the same
+	 */
+	public static TreeNode atMidpoint(TreeNode root, String a, String b) {
+		TreeNode leafA = findLeaf(root, a);
+		TreeNode leafB = findLeaf(root, b);
+		if (leafA == leafB) throw new IllegalArgumentException("the two leaves are the same: " + a);
+
+		/* distances from A to its ancestors, then climb from B until a common ancestor is met */
+		HashMap<TreeNode,BigDecimal> fromA = new HashMap<TreeNode,BigDecimal>();
+		BigDecimal d = BigDecimal.ZERO;
+		for (TreeNode n = leafA; n != null; n = n.getParent()) {
+			fromA.put(n, d);
+			d = d.add(length(n));
+		}
+		BigDecimal dB = BigDecimal.ZERO;
+		TreeNode lca = leafB;
+		while (!fromA.containsKey(lca)) {
+			dB = dB.add(length(lca));
+			lca = lca.getParent();
+		}
+		BigDecimal dA = fromA.get(lca);
+		BigDecimal middle = dA.add(dB).divide(BigDecimal.valueOf(2));
+
+		/* the midpoint lies on the longer of the two paths to the common ancestor */
+		TreeNode from = dA.compareTo(dB) >= 0 ? leafA : leafB;
+		BigDecimal walked = BigDecimal.ZERO;
+		for (TreeNode n = from; n != lca; n = n.getParent()) {
+			BigDecimal next = walked.add(length(n));
+			if (next.compareTo(middle) >= 0) return onBranch(root, n, middle.subtract(walked).toPlainString());
+			walked = next;
+		}
+		/* zero-length paths: root above the first leaf */
+		return onBranch(root, from, "0");
+	}
+
+	/**
+	 * Root on the branch separating an ingroup of the query from the rest of the tree,
+	 * e.g., the query and the donors of a node supporting query-donor monophyly
+	 * @param root the current root
+	 * @param query a string for the query leaf
+	 * @param ingroup names of the other ingroup leaves
+	 * @return the new root
+	 * @throws IllegalArgumentException if the query is not found or the ingroup is the whole tree
+	 */
+	public static TreeNode atOutgroup(TreeNode root, String query, Collection<String> ingroup) {
+		/* with the query as outgroup, the rest of the tree hangs below a single node */
+		root = atLeaf(root, query);
+		TreeNode queryLeaf = findLeaf(root, query);
+		TreeNode rest = root.getChildren().get(0) == queryLeaf ? root.getChildren().get(1) : root.getChildren().get(0);
+
+		/* the outgroup is the biggest subtree without ingroup leaves */
+		HashSet<String> members = new HashSet<String>(ingroup);
+		HashMap<TreeNode,Integer> nbIngroup = new HashMap<TreeNode,Integer>();
+		HashMap<TreeNode,Integer> nbLeaves = new HashMap<TreeNode,Integer>();
+		TreeNode best = null;
+		for (TreeNode n : postorder(rest)) {
+			int in = 0;
+			int all = 0;
+			if (n.isLeaf()) {
+				in = members.contains(n.getLabel()) ? 1 : 0;
+				all = 1;
+			} else {
+				for (TreeNode c : n.getChildren()) {
+					in += nbIngroup.get(c);
+					all += nbLeaves.get(c);
+				}
+			}
+			nbIngroup.put(n, in);
+			nbLeaves.put(n, all);
+			if (in == 0 && (best == null || all > nbLeaves.get(best))) best = n;
+		}
+		if (best == null) throw new IllegalArgumentException("no outgroup: every leaf is in the ingroup");
+		if (best == rest) return root;
+		return onBranch(root, best, half(best.getLength()));
+	}
+
+	/**
+	 * Root on the branch between a node and its parent
+	 * @param root the current root
+	 * @param node the node below the branch
+	 * @param toNode length of the new branch from the root to node (the rest goes to the other side)
+	 * @return the new root
+	 */
+	public static TreeNode onBranch(TreeNode root, TreeNode node, String toNode) {
+		TreeNode parent = node.getParent();
+		if (parent == null) return root;
+		TreeNode newRoot = new TreeNode();
+
+		BigDecimal total = length(node);
+		String toParent = node.getLength() == null ? null : total.subtract(new BigDecimal(toNode)).toPlainString();
+		String support = node.getSupport();
+		parent.removeChild(node);
+		node.setLength(node.getLength() == null ? null : toNode);
+		newRoot.addChild(node);
+
+		/* reverse the branches from the parent up to the old root; each one takes the length
+		   and support of the branch below it on the path */
+		TreeNode current = parent;
+		TreeNode above = newRoot;
+		String carryLength = toParent;
+		String carrySupport = support;
+		while (current != null) {
+			TreeNode next = current.getParent();
+			String length = current.getLength();
+			String label = current.getLabel();
+			if (next != null) next.removeChild(current);
+			current.setLength(carryLength);
+			current.setLabel(carrySupport);
+			above.addChild(current);
+			carryLength = length;
+			carrySupport = label;
+			above = current;
+			current = next;
+		}
+
+		/* the old root is now "above"; remove it if it is left with a single child */
+		if (above != root) throw new IllegalStateException("node is not in the tree");
+		if (above.getChildren().size() == 1) {
+			TreeNode child = above.getChildren().get(0);
+			TreeNode grandParent = above.getParent();
+			grandParent.removeChild(above);
+			above.removeChild(child);
+			child.setLength(sum(above.getLength(), child.getLength()));
+			if (child.getSupport().isEmpty() && !child.isLeaf()) child.setLabel(above.getLabel());
+			grandParent.addChild(child);
+		}
+		return newRoot;
+	}
+
+	/* find a leaf by exact name, or else the first leaf containing the name (see TreeNode.findLeaf) */
+	private static TreeNode findLeaf(TreeNode root, String name) {
+		TreeNode leaf = root.findLeaf(name);
+		if (leaf == null) throw new IllegalArgumentException("leaf not found: " + name);
+		return leaf;
+	}
+
+	/* return the nodes below (and including) a node, children before parents */
+	private static List<TreeNode> postorder(TreeNode top) {
+		ArrayList<TreeNode> order = new ArrayList<TreeNode>();
+		ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		stack.push(top);
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.pop();
+			order.add(node);
+			for (TreeNode c : node.getChildren()) stack.push(c);
+		}
+		/* reversed pre-order (with children pushed left to right) puts children first */
+		ArrayList<TreeNode> reversed = new ArrayList<TreeNode>(order.size());
+		for (int i=order.size()-1; i>=0; i--) reversed.add(order.get(i));
+		return reversed;
+	}
+
+	private static BigDecimal length(TreeNode node) {
+		if (node.getLength() == null || node.getLength().isEmpty()) return BigDecimal.ZERO;
+		return new BigDecimal(node.getLength());
+	}
+
+	private static String half(String length) {
+		if (length == null || length.isEmpty()) return "0";
+		return new BigDecimal(length).divide(BigDecimal.valueOf(2)).toPlainString();
+	}
+
+	private static String sum(String a, String b) {
+		if (a == null) return b;
+		if (b == null) return a;
+		return new BigDecimal(a).add(new BigDecimal(b)).toPlainString();
+	}
+}
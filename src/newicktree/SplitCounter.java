@@ -0,0 +1,240 @@
+package newicktree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The class SplitCounter counts how often given splits occur in a set of replicate trees
+ * (e.g., bootstrap or UFBoot trees), which gives the frequency of a node of a consensus
+ * tree without re-running the tree builder.
+ *
+ * Every leaf label stands for a random 64-bit number (drawn from its label ID), and a split
+ * is hashed as the XOR of the numbers of the leaves on the query's side; leaves of ignored
+ * taxa count as 0, so the splits are compared as if those leaves were pruned. Splits to
+ * look for are registered first; replicate trees are then read one at a time and hashed in
+ * a single pass over their newick string, without building TreeNode objects. Memory is one
+ * counter per registered split plus the hashes of the tree being read, whatever the number
+ * of replicates.
+ */
+public class SplitCounter {
+	private String query;
+	private Categories categories;
+	private long[] targets = new long[0];
+	private int[] counts = new int[0];
+	/* last tree in which each target was seen, so that a split is counted once per tree */
+	private int[] seen = new int[0];
+	private int nbTrees = 0;
+	/* hashes and query flags of the interior nodes of the tree being read */
+	private long[] nodeHash = new long[64];
+	private boolean[] nodeQuery = new boolean[64];
+	private long[] stackHash = new long[64];
+	private boolean[] stackQuery = new boolean[64];
+
+	/**
+	 * Constructor
+	 * @param query name of the query sequence; splits are hashed on its side
+	 * @param categories categories of leaves; leaves of ignored taxa are left out
+	 */
+	public SplitCounter(String query, Categories categories) {
+		this.query = query;
+		this.categories = categories;
+	}
+
+	/**
+	 * Register a split to count
+	 * @param ingroup the leaves on the query's side, other than the query
+	 * @return the index of the split, for getCount() and getFrequency()
+	 */
+	public int addSplit(Collection<String> ingroup) {
+		long hash = leafHash(query);
+		for (String leaf : ingroup) hash ^= leafHash(leaf);
+		int index = targets.length;
+		targets = Arrays.copyOf(targets, index + 1);
+		counts = Arrays.copyOf(counts, index + 1);
+		seen = Arrays.copyOf(seen, index + 1);
+		targets[index] = hash;
+		return index;
+	}
+
+	/**
+	 * Read replicate trees from a file, one or more trees per line, each ending with ';'
+	 * @param file path to the replicate trees
+	 * @return the number of trees read
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a tree is not a well-formed newick tree
+	 */
+	public int addTrees(Path file) throws IOException {
+		int before = nbTrees;
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			StringBuilder pending = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Budget.check();
+				int start = 0;
+				int end;
+				while ((end = line.indexOf(';', start)) != -1) {
+					pending.append(line, start, end);
+					if (pending.toString().trim().length() > 0) addTree(pending.toString());
+					pending.setLength(0);
+					start = end + 1;
+				}
+				pending.append(line, start, line.length());
+			}
+			if (pending.toString().trim().length() > 0) addTree(pending.toString());
+		}
+		return nbTrees - before;
+	}
+
+	/**
+	 * Count the registered splits found in a replicate tree
+	 * @param newick a newick tree string, with or without the ending ';'
+	 * @throws IllegalArgumentException if the string is not a well-formed newick tree
+	 */
+	public void addTree(String newick) {
+		nbTrees++;
+		int nbNodes = hash(newick);
+		/* the root holds all leaves; a node without the query is hashed by its complement */
+		long all = stackHash[0];
+		for (int i=0; i<nbNodes; i++) {
+			long h = nodeQuery[i] ? nodeHash[i] : nodeHash[i] ^ all;
+			for (int t=0; t<targets.length; t++) {
+				if (targets[t] == h && seen[t] != nbTrees) {
+					seen[t] = nbTrees;
+					counts[t]++;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Hash the interior nodes of a tree (other than the root) into nodeHash and nodeQuery,
+	 * and leave the hash of the root in stackHash[0]; returns the number of interior nodes
+	 */
+	private int hash(String newick) {
+		int top = -1;
+		int nbNodes = 0;
+		/* the leaf or subtree just completed, waiting to be added to its parent */
+		long hash = 0;
+		boolean withQuery = false;
+		/* whether the next label belongs to an interior node (i.e., is a support value) */
+		boolean closed = false;
+		int i = 0;
+		int n = newick.length();
+		while (i < n) {
+			char c = newick.charAt(i);
+			switch (c) {
+				case '(':
+					top++;
+					if (top == stackHash.length) {
+						stackHash = Arrays.copyOf(stackHash, top * 2);
+						stackQuery = Arrays.copyOf(stackQuery, top * 2);
+					}
+					stackHash[top] = 0;
+					stackQuery[top] = false;
+					closed = false;
+					i++;
+					break;
+				case ',':
+				case ')':
+					if (top < 0) throw malformed(i, "'" + c + "' outside of parentheses");
+					stackHash[top] ^= hash;
+					stackQuery[top] |= withQuery;
+					hash = 0;
+					withQuery = false;
+					closed = false;
+					if (c == ')') {
+						hash = stackHash[top];
+						withQuery = stackQuery[top];
+						top--;
+						closed = true;
+						if (top >= 0) {
+							if (nbNodes == nodeHash.length) {
+								nodeHash = Arrays.copyOf(nodeHash, nbNodes * 2);
+								nodeQuery = Arrays.copyOf(nodeQuery, nbNodes * 2);
+							}
+							nodeHash[nbNodes] = hash;
+							nodeQuery[nbNodes] = withQuery;
+							nbNodes++;
+						}
+					}
+					i++;
+					break;
+				case ':':
+					i++;
+					while (i < n && ",();[".indexOf(newick.charAt(i)) == -1) i++;
+					break;
+				case '[':
+					int close = newick.indexOf(']', i);
+					if (close == -1) throw malformed(i, "unterminated comment");
+					i = close + 1;
+					break;
+				case '\'':
+					StringBuilder quoted = new StringBuilder();
+					i++;
+					while (true) {
+						if (i >= n) throw malformed(i, "unterminated quoted label");
+						char q = newick.charAt(i);
+						if (q == '\'') {
+							if (i + 1 < n && newick.charAt(i + 1) == '\'') {
+								quoted.append('\'');
+								i += 2;
+								continue;
+							}
+							i++;
+							break;
+						}
+						quoted.append(q);
+						i++;
+					}
+					if (!closed) {
+						hash = leafHash(quoted.toString());
+						withQuery = quoted.toString().equals(query);
+					}
+					break;
+				default:
+					if (Character.isWhitespace(c)) {
+						i++;
+						break;
+					}
+					int stop = i;
+					while (stop < n && ",():;[".indexOf(newick.charAt(stop)) == -1) stop++;
+					if (!closed) {
+						String label = newick.substring(i, stop).trim();
+						hash = leafHash(label);
+						withQuery = label.equals(query);
+					}
+					i = stop;
+			}
+		}
+		if (top != -1) throw malformed(n, "unbalanced '('");
+		stackHash[0] = hash;
+		return nbNodes;
+	}
+
+	/* the random number of a leaf; 0 for leaves of ignored taxa */
+	private long leafHash(String label) {
+		if (categories != null && (categories.get(label) & Categories.IGNORED) != 0) return 0;
+		return DonorSet.mix(0x5851F42D4C957F2DL + Labels.id(label));
+	}
+
+	/** return the number of replicate trees read */
+	public int getNbTrees() {
+		return nbTrees;
+	}
+	/** return the number of replicate trees holding a registered split */
+	public int getCount(int index) {
+		return counts[index];
+	}
+	/** return the fraction of replicate trees holding a registered split */
+	public double getFrequency(int index) {
+		return nbTrees == 0 ? 0 : (double) counts[index] / nbTrees;
+	}
+
+	private static IllegalArgumentException malformed(int index, String reason) {
+		return new IllegalArgumentException("malformed newick tree at character " + index + ": " + reason);
+	}
+}
@@ -0,0 +1,150 @@
+package newicktree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class Splits enumerates the bi-partitions of a parsed tree (see NewickParser).
+ * Every interior node other than the root cuts the tree in two; a node with k children
+ * (a polytomy) is a single node, so it gives a single bi-partition and no pairwise
+ * edges between its children are ever made. Leaves are laid out once in tree order and
+ * each interior node keeps the range of leaves below it, so a bi-partition is just the
+ * range [from, to) and its complement: the layout takes memory linear in the number of
+ * leaves, and screening reads the halves through prefix sums over it (see LeafTable)
+ * without ever listing them.
+ *
+ * fision() still writes every bi-partition out as a string:
+ *   node-name   "TAB"   support   "TAB"   [half with the seed]   "TAB"   [the other half]
+ * with interior nodes named node_0, node_1 ... in post-order, "-1" for a missing support
+ * and leaves separated by ", ". Each string lists all leaves of the tree, so the strings
+ * take time and memory quadratic in the number of leaves; they are kept for tools that
+ * read bi-partition tables, not for screening.
+ */
+public class Splits {
+	private String[] leaves;
+	private ArrayList<TreeNode> nodes = new ArrayList<TreeNode>();
+	private ArrayList<int[]> ranges = new ArrayList<int[]>();
+
+	// constructor
+	public Splits(TreeNode root) {
+		layout(root);
+	}
+
+	/*
+	 * getters
+	 */
+	public int getLeafCount() {
+		return leaves.length;
+	}
+	public int getInteriorCount() {
+		return nodes.size();
+	}
+	// label of the leaf at a position of the tree order
+	public String getLeaf(int position) {
+		return leaves[position];
+	}
+	// first position of the leaves below interior node i (in post-order)
+	public int getFrom(int i) {
+		return ranges.get(i)[0];
+	}
+	// position after the last leaf below interior node i
+	public int getTo(int i) {
+		return ranges.get(i)[1];
+	}
+	// support of interior node i, "-1" if missing
+	public String getSupport(int i) {
+		String support = nodes.get(i).getSupport();
+		return support.isEmpty() ? "-1" : support;
+	}
+
+	/**
+	 * Return all bi-partitions, putting the half containing the "seed" leaf first
+	 * @param seed the name of a leaf; when null, the first leaf is used. When no leaf has
+	 *        this name, the first half is empty
+	 * @return a list of bi-partition strings in post-order of interior nodes
+	 */
+	public List<String> fision(String seed) {
+		if (leaves.length == 0) return new ArrayList<String>();
+		return split(0, nodes.size(), seed == null ? 0 : position(seed));
+	}
+
+	// write the bi-partitions of interior nodes [from, to)
+	private List<String> split(int from, int to, int seed) {
+		List<String> bipartitions = new ArrayList<String>(to - from);
+		for (int i=from; i<to; i++) {
+			Budget.check();
+			int[] range = ranges.get(i);
+			String support = getSupport(i);
+
+			String inside  = join(range[0], range[1], -1, -1);
+			String outside = join(0, range[0], range[1], leaves.length);
+			boolean seedInside = seed >= range[0] && seed < range[1];
+			String first  = seed == -1 ? "[]" : (seedInside ? inside : outside);
+			String second = seed == -1 ? join(0, leaves.length, -1, -1) : (seedInside ? outside : inside);
+			bipartitions.add("node_" + i + "\t" + support + "\t" + first + "\t" + second);
+		}
+		return bipartitions;
+	}
+
+	// lay leaves out in tree order and record, for each interior node, the range of leaves
+	// below it; nodes are visited iteratively, so deep trees are fine
+	private void layout(TreeNode root) {
+		ArrayList<String> order = new ArrayList<String>();
+		ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		ArrayDeque<Integer> starts = new ArrayDeque<Integer>();
+		ArrayDeque<Integer> nexts = new ArrayDeque<Integer>();
+		stack.push(root);
+		starts.push(0);
+		nexts.push(0);
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.peek();
+			int next = nexts.pop();
+			if (node.isLeaf()) {
+				order.add(node.getLabel());
+				stack.pop();
+				starts.pop();
+			} else if (next < node.getChildren().size()) {
+				nexts.push(next + 1);
+				stack.push(node.getChildren().get(next));
+				starts.push(order.size());
+				nexts.push(0);
+			} else {
+				stack.pop();
+				int start = starts.pop();
+				/* the root does not cut the tree */
+				if (node != root) {
+					nodes.add(node);
+					ranges.add(new int[] {start, order.size()});
+				}
+			}
+		}
+		leaves = order.toArray(new String[order.size()]);
+	}
+
+	/**
+	 * Return the position of a leaf in the tree order
+	 * @param leaf the name of a leaf
+	 * @return the first position of a leaf of this name, or -1 if there is none
+	 */
+	public int position(String leaf) {
+		for (int i=0; i<leaves.length; i++) {
+			if (leaves[i].equals(leaf)) return i;
+		}
+		return -1;
+	}
+
+	// write leaves [a, b) and [c, d) as "[x, y, z]"
+	private String join(int a, int b, int c, int d) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i=a; i<b; i++) {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append(leaves[i]);
+		}
+		for (int i=c; i<d; i++) {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append(leaves[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,253 @@
+package newicktree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The class Taxonomy maps leaves to lineages read from a local table, so that donor,
+ * optional and ignored taxa can be any rank rather than text embedded in sequence names.
+ *
+ * The table has one line per accession or species, with a tab between the key and its
+ * lineage from the top rank down, ranks separated by ';' (e.g. an NCBI taxdump extract):
+ *   WP_012406913.1          Bacteria; Cyanobacteria; Nostocales; Nostoc punctiforme
+ *   Hyphomonas_neptunium    Bacteria; Proteobacteria; Alphaproteobacteria
+ * Lines starting with '#' are skipped. Spaces in keys and taxon names count as '_'.
+ *
+ * Lineages are compiled into a trie of taxa numbered in pre-order; each taxon also keeps
+ * the last number below it, so "is x inside taxon t" is a constant-time interval check.
+ * A leaf label is mapped to the longest key found in it between delimiters (start, end,
+ * or one of "-|._ "), computed once per label and kept by label ID (see Labels).
+ */
+public class Taxonomy {
+	private static final String DELIMITERS = "-|._ ";
+	private static final int UNKNOWN = 0;
+	private static final int NONE = -1;
+	private static volatile Taxonomy current = null;
+
+	/* trie of taxa: parent and name of each taxon, pre-order number and end of its subtree */
+	private int[] parent;
+	private String[] name;
+	private int[] pre;
+	private int[] last;
+	/* taxa by name (a name may occur under several parents) */
+	private HashMap<String,int[]> byName = new HashMap<String,int[]>();
+	/* taxon of each key */
+	private HashMap<String,Integer> keys = new HashMap<String,Integer>();
+	private int longestKey = 0;
+	/* taxon of each label ID, plus one; UNKNOWN if not computed yet, NONE if not found */
+	private volatile int[] taxonOfLabel = new int[1024];
+
+	/**
+	 * Read and compile a taxonomy table
+	 * @param file a table of key TAB lineage
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line has no lineage
+	 */
+	public Taxonomy(Path file) throws IOException {
+		ArrayList<Integer> parents = new ArrayList<Integer>();
+		ArrayList<String> names = new ArrayList<String>();
+		HashMap<String,Integer> children = new HashMap<String,Integer>();
+		/* taxon 0 is the root, above all top ranks */
+		parents.add(-1);
+		names.add("");
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int nb = 0;
+			while ((line = reader.readLine()) != null) {
+				nb++;
+				if (line.trim().isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split("\t");
+				if (fields.length < 2) throw new IllegalArgumentException("no lineage at line " + nb + " of " + file);
+				int node = 0;
+				for (String rank : fields[fields.length - 1].split(";")) {
+					String taxon = normalize(rank);
+					if (taxon.isEmpty()) continue;
+					String child = node + "\t" + taxon;
+					Integer next = children.get(child);
+					if (next == null) {
+						next = names.size();
+						parents.add(node);
+						names.add(taxon);
+						children.put(child, next);
+					}
+					node = next;
+				}
+				String key = normalize(fields[0]);
+				keys.put(key, node);
+				longestKey = Math.max(longestKey, key.length());
+			}
+		}
+		parent = new int[parents.size()];
+		name = new String[names.size()];
+		for (int i=0; i<parent.length; i++) {
+			parent[i] = parents.get(i);
+			name[i] = names.get(i);
+		}
+		number();
+	}
+
+	/*
+	 * the process-wide taxonomy, if one is loaded
+	 */
+	public static Taxonomy get() {
+		return current;
+	}
+	public static Taxonomy load(Path file) throws IOException {
+		current = new Taxonomy(file);
+		return current;
+	}
+
+	/** return the number of keys */
+	public int getNbKeys() {
+		return keys.size();
+	}
+	/** return the number of taxa in the trie */
+	public int getNbTaxa() {
+		return parent.length - 1;
+	}
+
+	/**
+	 * Return the taxa named by a list of names, for membership tests with isWithin()
+	 * @param names taxon names joined with ","
+	 * @return taxa numbers; names not in the taxonomy are left out
+	 */
+	public int[] resolve(String names) {
+		int[] taxa = new int[0];
+		if (names.isEmpty()) return taxa;
+		for (String n : names.split(",")) {
+			int[] found = byName.get(normalize(n));
+			if (found == null) continue;
+			int length = taxa.length;
+			taxa = Arrays.copyOf(taxa, length + found.length);
+			System.arraycopy(found, 0, taxa, length, found.length);
+		}
+		return taxa;
+	}
+
+	/**
+	 * Return true if a leaf belongs to one of the given taxa
+	 * @param label a leaf label
+	 * @param taxa taxa from resolve()
+	 */
+	public boolean isWithin(String label, int[] taxa) {
+		if (taxa.length == 0) return false;
+		int t = taxonOf(label);
+		if (t == NONE) return false;
+		for (int a : taxa) {
+			if (pre[a] <= pre[t] && pre[t] <= last[a]) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the lineage of a leaf from the top rank down, or an empty list if no key is found
+	 */
+	public List<String> getLineage(String label) {
+		ArrayList<String> lineage = new ArrayList<String>();
+		int t = taxonOf(label);
+		for (; t > 0; t = parent[t]) lineage.add(0, name[t]);
+		return lineage;
+	}
+
+	/* return the taxon of a label, or NONE */
+	private int taxonOf(String label) {
+		int id = Labels.id(label);
+		int[] known = taxonOfLabel;
+		if (id < known.length && known[id] != UNKNOWN) return known[id] == NONE ? NONE : known[id] - 1;
+		int t = find(label);
+		if (id >= known.length) known = grow(id);
+		known[id] = t == NONE ? NONE : t + 1;
+		return t;
+	}
+
+	/* find the longest key between delimiters in a label */
+	private int find(String label) {
+		String text = normalize(label);
+		Integer exact = keys.get(text);
+		if (exact != null) return exact;
+		int best = NONE;
+		int bestLength = 0;
+		for (int i=0; i<text.length(); i++) {
+			if (i > 0 && DELIMITERS.indexOf(text.charAt(i-1)) == -1) continue;
+			for (int j=Math.min(text.length(), i+longestKey); j>i+bestLength; j--) {
+				if (j < text.length() && DELIMITERS.indexOf(text.charAt(j)) == -1) continue;
+				Integer t = keys.get(text.substring(i, j));
+				if (t != null) {
+					best = t;
+					bestLength = j - i;
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	private synchronized int[] grow(int id) {
+		int[] known = taxonOfLabel;
+		if (id < known.length) return known;
+		int length = known.length;
+		while (length <= id) length *= 2;
+		known = Arrays.copyOf(known, length);
+		taxonOfLabel = known;
+		return known;
+	}
+
+	/* number taxa in pre-order and index them by name */
+	private void number() {
+		int n = parent.length;
+		int[] nbChildren = new int[n + 1];
+		for (int i=1; i<n; i++) nbChildren[parent[i] + 1]++;
+		/* children of taxon t are child[start[t] .. start[t+1]) */
+		int[] start = new int[n + 1];
+		for (int i=0; i<n; i++) start[i+1] = start[i] + nbChildren[i+1];
+		int[] child = new int[n];
+		int[] fill = Arrays.copyOf(start, n);
+		for (int i=1; i<n; i++) child[fill[parent[i]]++] = i;
+
+		pre = new int[n];
+		last = new int[n];
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int top = 0;
+		int counter = 0;
+		stack[top++] = 0;
+		pre[0] = counter++;
+		while (top > 0) {
+			int t = stack[top - 1];
+			if (next[t] < start[t+1] - start[t]) {
+				int c = child[start[t] + next[t]++];
+				pre[c] = counter++;
+				stack[top++] = c;
+			} else {
+				last[t] = counter - 1;
+				top--;
+			}
+		}
+
+		HashMap<String,List<Integer>> names = new HashMap<String,List<Integer>>();
+		for (int i=1; i<n; i++) names.computeIfAbsent(name[i], k -> new ArrayList<Integer>()).add(i);
+		for (String k : names.keySet()) {
+			List<Integer> taxa = names.get(k);
+			int[] array = new int[taxa.size()];
+			for (int i=0; i<array.length; i++) array[i] = taxa.get(i);
+			byName.put(k, array);
+		}
+	}
+
+	private static String normalize(String text) {
+		return text.trim().replace(' ', '_');
+	}
+
+	public static void main(String[] args) throws IOException {
+		Taxonomy taxonomy = new Taxonomy(java.nio.file.Paths.get(args[0]));
+		System.out.println(taxonomy.getNbKeys() + " keys, " + taxonomy.getNbTaxa() + " taxa");
+		for (int i=1; i<args.length; i++) System.out.println(args[i] + "\t" + taxonomy.getLineage(args[i]));
+	}
+}
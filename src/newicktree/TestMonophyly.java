@@ -10,6 +10,8 @@ import java.util.List;
 
 public class TestMonophyly {
 	private List<String> bipartitions = new ArrayList<String>();
+	/* the bi-partitions of a tree, read from its leaves instead of strings (or null) */
+	private Splits splits = null;
 	private String query;
 	private String donor;
 	private double support_cut;
@@ -20,6 +22,8 @@ public class TestMonophyly {
 	private int nbWeakMonophyleticNodes = 0;
 	private int nbAdjustedMonophyleticNodes = -1;
 	private int minOutGroupSize = 0;
+	private TreePattern pattern = null;
+	private boolean patternMatched = true;
 	
 	private ArrayList<String> supportDonorsAndOptionals = new ArrayList<String>();
 	
@@ -46,6 +50,35 @@ public class TestMonophyly {
 		this.minOutGroupSize = minOutGroupSize;
 	}
 
+	/**
+	 * Constructor
+	 * @param bipartitions a string containing ingroup and outgroup
+	 * @param query a string for query species
+	 * @param donor a string for donor species. Multiple species are separated by comma ','.
+	 * @param support_cut a double as cutoff for branch support
+	 * @param optionals a string for optional species. Multiple species are separated by comma ','.
+	 * @param ignored a string for species to be ignored. Multiple species are separated by comma ','.
+	 * @param minOutGroupSize an integer to define the minimal number of sequences in outgroup (default = 0).
+	 * @param pattern a TreePattern object the tree must also match (null for none)
+	 */
+	public TestMonophyly(List<String> bipartitions, String query, String donor,
+			double support_cut, String optionals, String ignored, int minOutGroupSize, TreePattern pattern) {
+		this(bipartitions, query, donor, support_cut, optionals, ignored, minOutGroupSize);
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Constructor
+	 * Same as above, reading the bi-partitions from the leaves of a tree (see LeafTable), 
+	 * which takes time and memory linear in the size of the tree.
+	 * @param splits the bi-partitions of a tree (see NewickTree.getSplits)
+	 */
+	public TestMonophyly(Splits splits, String query, String donor,
+			double support_cut, String optionals, String ignored, int minOutGroupSize, TreePattern pattern) {
+		this((List<String>) null, query, donor, support_cut, optionals, ignored, minOutGroupSize, pattern);
+		this.splits = splits;
+	}
+
 	/**
 	 * Constructor
 	 * @param bipartitions a string containing ingroup and outgroup.
@@ -84,7 +117,8 @@ public class TestMonophyly {
 	 * Test all bi-partitions of a tree for monophyletic relationship.
 	 */
 	public void testExclusive() {
-		AllBipartitions tree = new AllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored, minOutGroupSize);
+		AllBipartitions tree = exclusive();
+		patternMatched = tree.isPatternMatched();
 		nbAdjustedMonophyleticNodes = 0;
 		nbStrongMonophyleticNodes = tree.getStrongNodes();
 		nbWeakMonophyleticNodes = tree.getWeakNodes();
@@ -93,13 +127,27 @@ public class TestMonophyly {
 	
 	/**
 	 * Test all bi-partitions of a tree for monophyletic relationship allowing 
-	 * a limited number of irrelevant sequences (due to contamination).
+	 * a limited number of irrelevant sequences (due to contamination). A node whose
+	 * in-group holds 1 or 2 irrelevant sequences is adjusted if each of them forms a
+	 * strongly supported monophyly with donors elsewhere in the tree. Adjusted nodes are
+	 * counted apart from strong nodes (see getAdjustedStrongNodes).
 	 */
 	public void testGeneralized() {
-		AllBipartitionsGeneralized tree = new AllBipartitionsGeneralized(bipartitions, query, donor, support_cut, optionals, ignored);
+		AllBipartitions exclusive = exclusive();
+		patternMatched = exclusive.isPatternMatched();
+		AllBipartitionsGeneralized tree = new AllBipartitionsGeneralized(bipartitions, exclusive, donor, support_cut, minOutGroupSize);
 		nbAdjustedMonophyleticNodes = tree.getAdjustedStrongNodes(); 
-		nbStrongMonophyleticNodes = tree.getStrongNodes() + nbAdjustedMonophyleticNodes;
+		nbStrongMonophyleticNodes = tree.getStrongNodes();
 		nbWeakMonophyleticNodes = tree.getWeakNodes();
+		supportDonorsAndOptionals = exclusive.getSupportDonorsAndOptionals();
+	}
+
+	/* classify all bi-partitions, from the tree if there is one */
+	private AllBipartitions exclusive() {
+		if (splits != null) {
+			return new AllBipartitions(splits, query, donor, support_cut, optionals, ignored, minOutGroupSize, pattern);
+		}
+		return new AllBipartitions(bipartitions, query, donor, support_cut, optionals, ignored, minOutGroupSize, pattern);
 	}
 
 	/*
@@ -118,6 +166,9 @@ public class TestMonophyly {
 	public ArrayList<String> getSupportDonorsAndOptionals(){
 		return supportDonorsAndOptionals;
 	}
+	public boolean isPatternMatched(){
+		return patternMatched;
+	}
 	
 	/*
 	 * 
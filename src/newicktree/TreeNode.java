@@ -0,0 +1,98 @@
+package newicktree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class TreeNode is a node of a parsed newick tree. A leaf carries the sequence
+ * name as its label; an interior node carries its support value (if any) as its label.
+ * Branch lengths are kept as written in the input, so that trees are written back
+ * without loss. A node may have any number of children (multifurcation).
+ */
+public class TreeNode {
+	private String label = "";
+	private String length = null;
+	private TreeNode parent = null;
+	private ArrayList<TreeNode> children = new ArrayList<TreeNode>();
+
+	// constructor
+	public TreeNode() {
+	}
+	public TreeNode(String label, String length) {
+		this.label = label;
+		this.length = length;
+	}
+
+	/** add a child at the end of the children list */
+	public void addChild(TreeNode child) {
+		child.parent = this;
+		children.add(child);
+	}
+
+	/** remove a child; return false if it is not a child of this node */
+	public boolean removeChild(TreeNode child) {
+		if (!children.remove(child)) return false;
+		child.parent = null;
+		return true;
+	}
+
+	/** return true if the node has no children */
+	public boolean isLeaf() {
+		return children.isEmpty();
+	}
+
+	/** return the support value of an interior node, or an empty string if there is none */
+	public String getSupport() {
+		return isLeaf() ? "" : label;
+	}
+
+	/**
+	 * Find a leaf below this node by exact name, or else the first leaf (in tree order)
+	 * whose name contains the given one, so that e.g. "X.1" finds "X.1" before "X.10"
+	 * @param name a string for the leaf
+	 * @return the leaf, or null if none is found
+	 */
+	public TreeNode findLeaf(String name) {
+		TreeNode partial = null;
+		ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.pop();
+			if (node.isLeaf()) {
+				if (node.label.equals(name)) return node;
+				if (partial == null && node.label.contains(name)) partial = node;
+			} else {
+				for (int i=node.children.size()-1; i>=0; i--) stack.push(node.children.get(i));
+			}
+		}
+		return partial;
+	}
+
+	/*
+	 * getters and setters
+	 */
+	public String getLabel() {
+		return label;
+	}
+	public void setLabel(String label) {
+		this.label = label;
+	}
+	// return the branch length as written in the input, or null if absent
+	public String getLength() {
+		return length;
+	}
+	public void setLength(String length) {
+		this.length = length;
+	}
+	public TreeNode getParent() {
+		return parent;
+	}
+	public List<TreeNode> getChildren() {
+		return children;
+	}
+
+	public String toString() {
+		return NewickWriter.write(this);
+	}
+}
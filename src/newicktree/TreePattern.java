@@ -0,0 +1,439 @@
+package newicktree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The class TreePattern is a small language for the shapes a tree must have besides (or
+ * instead of) the nested position of the query tested by AllBipartitions. A pattern is
+ * compiled once into predicates over numbers gathered for each bi-partition in the same
+ * pass that classifies its leaves (see ABipartition.checkIngroup), so a pattern adds no
+ * pass over the splits or the trees.
+ *
+ * For each bi-partition, its in-group (the half holding the query) is described by:
+ *   support   node support ("-1" if missing)
+ *   donors, optionals, ignored, others   number of leaves of each kind (the query aside)
+ *   size      number of leaves including the query; outgroup: leaves of the other half
+ *   rank      1 for the smallest in-group, 2 for the next one, etc. (in-groups are nested)
+ *   nested    in-group of the query and donors (and optionals) only, with a valid outgroup
+ *   strong    support at least the cutoff
+ *   has(A,B)  holds a leaf of taxon A or B; only(A,B): other leaves all belong to A or B
+ *   taxa(A,B) number of the listed taxa present
+ * and a tree is described by quantifiers over its in-groups:
+ *   some(c), no(c), all(c), count(c), min(x where c), max(x where c)
+ * combined with comparisons (<, <=, >, >=, ==, !=), and, or, not and parentheses, e.g.
+ *   some(rank == 1 and only(Alphaproteobacteria)) and no(only(Gammaproteobacteria))
+ *   some(nested and strong and taxa(Alphaproteobacteria,Betaproteobacteria,Firmicutes) >= 2)
+ *   max(optionals where nested) == min(optionals where nested)
+ * min() and max() of no in-group are undefined and make any comparison false. Leaves of
+ * ignored taxa are left out, as in screening. Taxa are matched like donor taxa (by name,
+ * or by lineage if a taxonomy is loaded) and kept as bits of a mask cached per label, so
+ * a pattern can name at most 63 taxa and use at most 63 only() lists.
+ */
+public class TreePattern {
+	private static final int MAXBITS = 63;
+	private static final long KNOWN = 1L << 63;
+	/* maximal number of labels cached */
+	private static final int CAPACITY = 1 << 22;
+
+	private String text;
+	private int position = 0;
+	/* whether the expression being parsed is inside a quantifier, i.e. about one in-group */
+	private boolean inNode = false;
+	private ArrayList<String> taxa = new ArrayList<String>();
+	private ArrayList<Long> onlyLists = new ArrayList<Long>();
+	private long[] only;
+	private int[][] taxaResolved;
+	private Taxonomy taxonomy;
+	private Condition root;
+	/* taxon mask of each label, by label ID, with KNOWN set */
+	private volatile long[] masks = new long[1024];
+
+	/** a compiled boolean expression; node is -1 for the tree as a whole */
+	private interface Condition {
+		boolean test(Nodes nodes, int node);
+	}
+	/** a compiled numeric expression */
+	private interface Value {
+		double get(Nodes nodes, int node);
+	}
+
+	/**
+	 * The in-groups of all bi-partitions of a tree, one slot per bi-partition, filled while
+	 * bi-partitions are classified (each worker only writes its own slots)
+	 */
+	public static class Nodes {
+		private double cut;
+		private int length;
+		private boolean[] valid;
+		private double[] support;
+		private boolean[] nested;
+		private int[] donors;
+		private int[] optionals;
+		private int[] ignored;
+		private int[] others;
+		private int[] size;
+		private int[] outgroup;
+		private long[] taxa;
+		private long[] outside;
+		private int[] rank;
+
+		public Nodes(int length, double cut) {
+			this.length = length;
+			this.cut = cut;
+			valid = new boolean[length];
+			support = new double[length];
+			nested = new boolean[length];
+			donors = new int[length];
+			optionals = new int[length];
+			ignored = new int[length];
+			others = new int[length];
+			size = new int[length];
+			outgroup = new int[length];
+			taxa = new long[length];
+			outside = new long[length];
+		}
+
+		/**
+		 * Record the in-group of a bi-partition
+		 * @param i index of the bi-partition
+		 * @param support node support
+		 * @param status status of the bi-partition (see ABipartition.getStatus and getOutgroupStatus)
+		 * @param bp the bi-partition, after checkIngroup()
+		 */
+		public void set(int i, double support, int status, ABipartition bp) {
+			if (bp.getIngroupSize() == 0) return;
+			valid[i] = true;
+			this.support[i] = support;
+			nested[i] = status > 0;
+			donors[i] = bp.getNbDonor();
+			optionals[i] = bp.getNbOptional();
+			ignored[i] = bp.getNbIgnored();
+			others[i] = bp.getNbIrrelevant();
+			size[i] = bp.getIngroupSize();
+			outgroup[i] = bp.getOutgroupSize();
+			taxa[i] = bp.getTaxonMask();
+			outside[i] = bp.getOutsideMask();
+		}
+
+		/* rank in-groups by size; equal in-groups (e.g., both sides of a root) share a rank */
+		private void rank() {
+			if (rank != null) return;
+			rank = new int[length];
+			int[] sizes = new int[length];
+			int n = 0;
+			for (int i=0; i<length; i++) if (valid[i]) sizes[n++] = size[i];
+			Arrays.sort(sizes, 0, n);
+			/* distinct sizes in increasing order */
+			int distinct = 0;
+			for (int i=0; i<n; i++) if (i == 0 || sizes[i] != sizes[i-1]) sizes[distinct++] = sizes[i];
+			for (int i=0; i<length; i++) {
+				if (valid[i]) rank[i] = Arrays.binarySearch(sizes, 0, distinct, size[i]) + 1;
+			}
+		}
+	}
+
+	/**
+	 * Compile a pattern
+	 * @param text a pattern (see above)
+	 * @throws IllegalArgumentException if the pattern is not well formed
+	 */
+	public TreePattern(String text) {
+		this.text = text;
+		this.taxonomy = Taxonomy.get();
+		root = condition(expression());
+		skipSpaces();
+		if (position < text.length()) throw error("unexpected '" + text.charAt(position) + "'");
+		only = new long[onlyLists.size()];
+		for (int l=0; l<only.length; l++) only[l] = onlyLists.get(l);
+		taxaResolved = new int[taxa.size()][];
+		for (int i=0; i<taxa.size(); i++) {
+			taxaResolved[i] = taxonomy == null ? new int[0] : taxonomy.resolve(taxa.get(i));
+		}
+	}
+
+	/** return the pattern as written */
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * Return true if the in-groups of a tree match the pattern
+	 * @param nodes the in-groups of all bi-partitions of the tree
+	 */
+	public boolean matches(Nodes nodes) {
+		return root.test(nodes, -1);
+	}
+
+	/**
+	 * Add the taxa of a leaf to the masks of an in-group
+	 * @param label a leaf label (neither the query nor an ignored leaf)
+	 * @param acc taxon mask (acc[0]) and outside-of-only() mask (acc[1]) of the in-group
+	 */
+	public void addLeaf(String label, long[] acc) {
+		long mask = mask(label);
+		acc[0] |= mask;
+		for (int l=0; l<only.length; l++) {
+			if ((mask & only[l]) == 0) acc[1] |= 1L << l;
+		}
+	}
+
+	/* the taxa of a label as a mask, matched once and then looked up */
+	private long mask(String label) {
+		int id = Labels.id(label);
+		long[] current = masks;
+		if (id < current.length && current[id] != 0) return current[id] & ~KNOWN;
+		long mask = 0;
+		for (int t=0; t<taxa.size(); t++) {
+			if (label.contains(taxa.get(t)) || (taxonomy != null && taxonomy.isWithin(label, taxaResolved[t]))) mask |= 1L << t;
+		}
+		if (id >= current.length) {
+			if (id >= CAPACITY) return mask;
+			current = grow(id);
+		}
+		current[id] = mask | KNOWN;
+		return mask;
+	}
+
+	private synchronized long[] grow(int index) {
+		long[] current = masks;
+		if (index < current.length) return current;
+		int length = current.length;
+		while (length <= index) length *= 2;
+		current = Arrays.copyOf(current, length);
+		masks = current;
+		return current;
+	}
+
+	/*
+	 * parser: expression := and ('or' and)* ; and := unary ('and' unary)* ;
+	 * unary := 'not' unary | comparison ; comparison := atom (operator atom)?
+	 */
+	private Object expression() {
+		Object left = and();
+		while (keyword("or")) {
+			Condition a = condition(left);
+			Condition b = condition(and());
+			left = (Condition) (n, i) -> a.test(n, i) || b.test(n, i);
+		}
+		return left;
+	}
+
+	private Object and() {
+		Object left = unary();
+		while (keyword("and")) {
+			Condition a = condition(left);
+			Condition b = condition(unary());
+			left = (Condition) (n, i) -> a.test(n, i) && b.test(n, i);
+		}
+		return left;
+	}
+
+	private Object unary() {
+		if (keyword("not")) {
+			Condition a = condition(unary());
+			return (Condition) (n, i) -> !a.test(n, i);
+		}
+		Object left = atom();
+		skipSpaces();
+		for (String op : new String[] {"<=", ">=", "==", "!=", "<", ">"}) {
+			if (text.startsWith(op, position)) {
+				position += op.length();
+				Value a = value(left);
+				Value b = value(atom());
+				switch (op) {
+					case "<=": return (Condition) (n, i) -> a.get(n, i) <= b.get(n, i);
+					case ">=": return (Condition) (n, i) -> a.get(n, i) >= b.get(n, i);
+					case "==": return (Condition) (n, i) -> a.get(n, i) == b.get(n, i);
+					case "!=": return (Condition) (n, i) -> { double x = a.get(n, i), y = b.get(n, i); return x != y && x == x && y == y; };
+					case "<":  return (Condition) (n, i) -> a.get(n, i) < b.get(n, i);
+					default:   return (Condition) (n, i) -> a.get(n, i) > b.get(n, i);
+				}
+			}
+		}
+		return left;
+	}
+
+	private Object atom() {
+		skipSpaces();
+		if (position >= text.length()) throw error("unexpected end of pattern");
+		char c = text.charAt(position);
+		if (c == '(') {
+			position++;
+			Object inner = expression();
+			expect(')');
+			return inner;
+		}
+		if (Character.isDigit(c) || c == '-' || c == '.') {
+			int start = position;
+			position++;
+			while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) position++;
+			double number;
+			try {
+				number = Double.parseDouble(text.substring(start, position));
+			} catch (NumberFormatException e) {
+				throw error("bad number '" + text.substring(start, position) + "'");
+			}
+			return (Value) (n, i) -> number;
+		}
+		String word = word();
+		switch (word) {
+			case "some": case "no": case "all": case "count":
+				return quantifier(word);
+			case "min": case "max":
+				return extreme(word);
+			case "has": case "only": case "taxa":
+				return taxa(word);
+		}
+		if (!inNode) throw error("'" + word + "' is about one in-group; use it inside some(), no(), all(), count(), min() or max()");
+		switch (word) {
+			case "support":   return (Value) (n, i) -> n.support[i];
+			case "donors":    return (Value) (n, i) -> n.donors[i];
+			case "optionals": return (Value) (n, i) -> n.optionals[i];
+			case "ignored":   return (Value) (n, i) -> n.ignored[i];
+			case "others":    return (Value) (n, i) -> n.others[i];
+			case "size":      return (Value) (n, i) -> n.size[i];
+			case "outgroup":  return (Value) (n, i) -> n.outgroup[i];
+			case "rank":      return (Value) (n, i) -> { n.rank(); return n.rank[i]; };
+			case "nested":    return (Condition) (n, i) -> n.nested[i];
+			case "strong":    return (Condition) (n, i) -> n.support[i] >= n.cut;
+			default: throw error("unknown word '" + word + "'");
+		}
+	}
+
+	/* some(c), no(c), all(c), count(c) */
+	private Object quantifier(String word) {
+		if (inNode) throw error("'" + word + "' cannot be nested");
+		expect('(');
+		inNode = true;
+		Condition c = condition(expression());
+		inNode = false;
+		expect(')');
+		switch (word) {
+			case "some": return (Condition) (n, i) -> {
+				for (int j=0; j<n.length; j++) if (n.valid[j] && c.test(n, j)) return true;
+				return false;
+			};
+			case "no": return (Condition) (n, i) -> {
+				for (int j=0; j<n.length; j++) if (n.valid[j] && c.test(n, j)) return false;
+				return true;
+			};
+			case "all": return (Condition) (n, i) -> {
+				for (int j=0; j<n.length; j++) if (n.valid[j] && !c.test(n, j)) return false;
+				return true;
+			};
+			default: return (Value) (n, i) -> {
+				int count = 0;
+				for (int j=0; j<n.length; j++) if (n.valid[j] && c.test(n, j)) count++;
+				return count;
+			};
+		}
+	}
+
+	/* min(x where c), max(x where c); the condition is optional */
+	private Object extreme(String word) {
+		if (inNode) throw error("'" + word + "' cannot be nested");
+		expect('(');
+		inNode = true;
+		Value x = value(expression());
+		Condition c = keyword("where") ? condition(expression()) : (Condition) (n, i) -> true;
+		inNode = false;
+		expect(')');
+		boolean max = word.equals("max");
+		return (Value) (n, i) -> {
+			double best = Double.NaN;
+			for (int j=0; j<n.length; j++) {
+				if (!n.valid[j] || !c.test(n, j)) continue;
+				double v = x.get(n, j);
+				if (best != best || (max ? v > best : v < best)) best = v;
+			}
+			return best;
+		};
+	}
+
+	/* has(A,B), only(A,B), taxa(A,B): taxon names up to ',' or ')' */
+	private Object taxa(String word) {
+		if (!inNode) throw error("'" + word + "' is about one in-group; use it inside some(), no(), all(), count(), min() or max()");
+		expect('(');
+		long bits = 0;
+		while (true) {
+			int start = position;
+			while (position < text.length() && text.charAt(position) != ',' && text.charAt(position) != ')') position++;
+			String name = text.substring(start, position).trim();
+			if (name.isEmpty()) throw error("missing taxon name");
+			int t = taxa.indexOf(name);
+			if (t == -1) {
+				if (taxa.size() == MAXBITS) throw error("more than " + MAXBITS + " taxa");
+				t = taxa.size();
+				taxa.add(name);
+			}
+			bits |= 1L << t;
+			if (position >= text.length()) throw error("missing ')'");
+			if (text.charAt(position++) == ')') break;
+		}
+		long mask = bits;
+		switch (word) {
+			case "has":
+				return (Condition) (n, i) -> (n.taxa[i] & mask) != 0;
+			case "taxa":
+				return (Value) (n, i) -> Long.bitCount(n.taxa[i] & mask);
+			default:
+				int l = onlyLists.indexOf(mask);
+				if (l == -1) {
+					if (onlyLists.size() == MAXBITS) throw error("more than " + MAXBITS + " only() lists");
+					l = onlyLists.size();
+					onlyLists.add(mask);
+				}
+				long bit = 1L << l;
+				return (Condition) (n, i) -> (n.outside[i] & bit) == 0;
+		}
+	}
+
+	private Condition condition(Object e) {
+		if (e instanceof Condition) return (Condition) e;
+		throw error("a condition is expected");
+	}
+
+	private Value value(Object e) {
+		if (e instanceof Value) return (Value) e;
+		throw error("a number is expected");
+	}
+
+	private String word() {
+		skipSpaces();
+		int start = position;
+		while (position < text.length() && Character.isLetter(text.charAt(position))) position++;
+		if (start == position) throw error("unexpected '" + text.charAt(position) + "'");
+		return text.substring(start, position).toLowerCase(Locale.ROOT);
+	}
+
+	/* consume a keyword if it comes next */
+	private boolean keyword(String word) {
+		skipSpaces();
+		int end = position + word.length();
+		if (!text.regionMatches(true, position, word, 0, word.length())) return false;
+		if (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) return false;
+		position = end;
+		return true;
+	}
+
+	private void expect(char c) {
+		skipSpaces();
+		if (position >= text.length() || text.charAt(position) != c) throw error("'" + c + "' expected");
+		position++;
+	}
+
+	private void skipSpaces() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+	}
+
+	private IllegalArgumentException error(String reason) {
+		return new IllegalArgumentException(reason + " at character " + position + " of pattern: " + text);
+	}
+
+	public static void main(String[] args) {
+		TreePattern pattern = new TreePattern(args[0]);
+		System.out.println("compiled: " + pattern + " (" + pattern.taxa.size() + " taxa)");
+	}
+}
@@ -1,82 +1,167 @@
 package progress;
 
-import java.util.stream.*;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
 import java.lang.Thread;
 
 /**
- * 
- * 
+ * Progress reporting for many worker threads.
+ * Workers only bump lock-free counters; a separate low-frequency renderer thread
+ * draws the progress bar together with throughput, hits so far and ETA.
+ * When the console is not a terminal (e.g., output redirected to a batch scheduler
+ * log), the renderer writes a plain log line at a longer interval instead.
  */
 public class Bar {
-	//private double size = new Double(0);
-	private int size = 0;
+	private long size = 0;
 	private double resolution = 0.025;
-	private int record = -1;
 	private String mark = "-";
-	private String fullBar = "";
 	private int fullBarLen = 0;
-	
+
+	/* interval (in milliseconds) between redraws on a terminal and between log lines otherwise */
+	private long ttyInterval = 200;
+	private long logInterval = 30000;
+
+	private LongAdder done = new LongAdder();
+	private LongAdder hits = new LongAdder();
+	private PrintStream out = System.out;
+	private boolean tty = System.console() != null;
+	private long startTime = 0;
+	private volatile boolean running = false;
+	private Thread renderer;
+
 	/**
-	 * Constructors 
-	 * mandatory input: data size;
-	 * optional inputs: percentage resolution (how frequent should progress bar be updated.
-	 *                      the default is to update progress bar every 2.5% percent. 
-	 *                      That is 50 update in total);
-	 *                  mark (building block of progress bar, the default is '-'); 
+	 * Constructors
+	 * mandatory input: data size (0 if unknown);
+	 * optional inputs: percentage resolution (how fine the progress bar is drawn.
+	 *                      the default is one mark every 2.5% percent.
+	 *                      That is 40 marks in total);
+	 *                  mark (building block of progress bar, the default is '-');
 	 */
-	public Bar(int size, double resolution, String mark) {
+	public Bar(long size, double resolution, String mark) {
 		this.size = size;
 		this.resolution = resolution;
 		this.mark = mark;
 		setTotalHeight(resolution);
-	}	
-	public Bar(int size, double resolution) {
-		this.size = size;		
+	}
+	public Bar(long size, double resolution) {
+		this.size = size;
 		this.resolution = resolution;
 		setTotalHeight(resolution);
 	}
-	public Bar(int size) {
+	public Bar(long size) {
 		this.size = size;
 		setTotalHeight(resolution);
 	}
-	
+
 	/**
-	 * Given an integer 'count', if it triggers progress bar growth, refresh current 
-	 * line in terminal console and redraw progress bar
-	 * @param count, raw count of how many jobs are done
+	 * Record one finished job. Called by worker threads; never blocks.
+	 * @param hit whether or not the job produced a hit
 	 */
-	public synchronized void grow(double count) {
-		/* calculate percentage. */
-		double percentage = count/size;
-		/* Turn percentage to zero if percentage is too small. */
-		if (percentage < resolution ) percentage = 0;
-		/* translate percentage into bar length. */
-		int height = (int)(percentage/resolution);
-		
-		/**
-		 * Overlay progress bar onto blank background and print progress bar only
-		 * when count triggers bar growth 
-		 */
-		if (height > record ) {
-			String sRepeated = IntStream.range(0, height).mapToObj(i -> mark).collect(Collectors.joining(""));
-			sRepeated = sRepeated + '>';
-			sRepeated = (sRepeated + fullBar).substring(0, fullBarLen);
-			String percentage3decimal = alignDoubleToLeft(percentage, 5);
-			System.out.print(sRepeated + percentage3decimal + "\r");
-			record = height;
+	public void step(boolean hit) {
+		done.increment();
+		if (hit) hits.increment();
+	}
+
+	/** start the renderer thread */
+	public synchronized void start() {
+		if (running) return;
+		running = true;
+		startTime = System.currentTimeMillis();
+		renderer = new Thread(this::render, "progress");
+		renderer.setDaemon(true);
+		renderer.start();
+	}
+
+	/** stop the renderer thread and report the final state */
+	public synchronized void stop() {
+		if (!running) return;
+		running = false;
+		renderer.interrupt();
+		try {
+			renderer.join();
+		} catch (InterruptedException e) {
+			// report anyway
 		}
+		out.println(tty ? line() : log());
 	}
-	
+
+	/** redraw periodically until stopped */
+	private void render() {
+		long interval = tty ? ttyInterval : logInterval;
+		while (running) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (!running) break;
+			if (tty) {
+				out.print(line() + "\r");
+			} else {
+				out.println(log());
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Draw progress bar with percentage, throughput, hits and ETA
+	 * @return a string such as '---------->          0.250  120.5 trees/s  3 hits  ETA 0:01:02'
+	 */
+	private String line() {
+		long count = done.sum();
+		StringBuilder sb = new StringBuilder(fullBarLen + 64);
+		if (size > 0) {
+			double percentage = Math.min(1.0, (double) count / size);
+			int height = (int)(percentage/resolution);
+			for (int i=0; i<height; i++) sb.append(mark);
+			sb.append('>');
+			while (sb.length() < fullBarLen) sb.append(' ');
+			sb.setLength(fullBarLen);
+			sb.append(alignDoubleToLeft(percentage, 5));
+		} else {
+			sb.append(count).append(" trees");
+		}
+		sb.append(String.format("  %.1f trees/s  %d hits", rate(count), hits.sum()));
+		if (size > 0) sb.append("  ETA ").append(eta(count));
+		return sb.toString();
+	}
+
+	/**
+	 * Make a log line for non-terminal output
+	 * @return a string such as 'progress: 1200/4800 (25.0%), 120.5 trees/s, 3 hits, ETA 0:00:30'
+	 */
+	private String log() {
+		long count = done.sum();
+		StringBuilder sb = new StringBuilder("progress: ").append(count);
+		if (size > 0) sb.append('/').append(size).append(String.format(" (%.1f%%)", 100.0 * count / size));
+		sb.append(String.format(", %.1f trees/s, %d hits", rate(count), hits.sum()));
+		if (size > 0) sb.append(", ETA ").append(eta(count));
+		return sb.toString();
+	}
+
+	/* trees per second since start */
+	private double rate(long count) {
+		long elapsed = System.currentTimeMillis() - startTime;
+		return elapsed > 0 ? count * 1000.0 / elapsed : 0;
+	}
+
+	/* estimated time to finish as h:mm:ss, assuming the current throughput */
+	private String eta(long count) {
+		double rate = rate(count);
+		if (rate <= 0) return "-:--:--";
+		long seconds = (long) (Math.max(0, size - count) / rate);
+		return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
 	/**
 	 * Calculate overall integer bar height fullBarLen based on percentage resolution
-	 * Make a transparent blank fullBar    
 	 * @param resolution
 	 */
 	private void setTotalHeight(double resolution) {
 		fullBarLen = (int)(1.0/resolution + 1);
-		fullBar    = IntStream.range(0,  fullBarLen).mapToObj(i -> " ").collect(Collectors.joining(""));
 	}
-	
+
 	/**
 	 * Given a double, return a string of it in specified length
 	 * @param percentage double
@@ -84,25 +169,36 @@ public class Bar {
 	 * @return string of percentage in specified characters (e.g., '0.5000')
 	 */
 	public String alignDoubleToLeft(double d, int length) {
-		String ds = String.valueOf(d);
-		String background = IntStream.range(0, length).mapToObj(i -> "0").collect(Collectors.joining(""));
-		ds = (ds + background).substring(0, length);
-		return ds;
+		StringBuilder ds = new StringBuilder(String.valueOf(d));
+		while (ds.length() < length) ds.append('0');
+		return ds.substring(0, length);
 	}
 
-	
+	/*
+	 * getters
+	 */
+	public long getDone() {
+		return done.sum();
+	}
+	public long getHits() {
+		return hits.sum();
+	}
+
+
 	public static void main(String[] args) {
 		/** define a Bar object before loop */
 		Bar my = new Bar(100, 0.03, "-");
+		my.start();
 		/** a simple loop */
-		for (int i=0; i<=100; i++) {
-			// feed job number to Bar object. Progress bar grows if job number is sufficient
-			my.grow(i);
+		for (int i=0; i<100; i++) {
+			// report a finished job; the renderer thread redraws the bar
+			my.step(i % 10 == 0);
 			try {
 				Thread.sleep(20);
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
 		}
+		my.stop();
 	}
 }